@@ -0,0 +1,359 @@
+package com.dnastack.ddap.common.catalog;
+
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Read-only flattened views of a DAM realm, stored column by column instead of as {@link FlatView} messages. Every
+ * distinct string is stored once and referred to by number, and identical label and UI maps and role category lists
+ * are shared between views, so a view costs a row of ints plus whatever it does not have in common with the others.
+ * <p>
+ * Views are materialised as {@link FlatView} messages only when they are read through the {@link Map} interface or
+ * {@link #view(int)}. Indexes should read the columns instead. Views are kept in resource path order, and positions
+ * refer to that order.
+ */
+public class CompactFlatViews extends AbstractMap<String, FlatView> {
+
+    /**
+     * Scalar string fields of a {@link FlatView}.
+     */
+    public enum Column {
+        RESOURCE_PATH(FlatView::getResourcePath),
+        UMBRELLA(FlatView::getUmbrella),
+        RESOURCE_NAME(FlatView::getResourceName),
+        VIEW_NAME(FlatView::getViewName),
+        ROLE_NAME(FlatView::getRoleName),
+        INTERFACE_NAME(FlatView::getInterfaceName),
+        INTERFACE_URI(FlatView::getInterfaceUri),
+        CONTENT_TYPE(FlatView::getContentType),
+        SERVICE_NAME(FlatView::getServiceName),
+        PLATFORM(FlatView::getPlatform),
+        PLATFORM_SERVICE(FlatView::getPlatformService),
+        MAX_TOKEN_TTL(FlatView::getMaxTokenTtl);
+
+        private final Function<FlatView, String> getter;
+
+        Column(Function<FlatView, String> getter) {
+            this.getter = getter;
+        }
+    }
+
+    private static final Column[] COLUMNS = Column.values();
+    private static final int LABELS = COLUMNS.length;
+    private static final int RESOURCE_UI = LABELS + 1;
+    private static final int VIEW_UI = LABELS + 2;
+    private static final int ROLE_UI = LABELS + 3;
+    private static final int ROLE_CATEGORIES = LABELS + 4;
+    private static final int ROW_SIZE = LABELS + 5;
+
+    private final String[] paths;
+    private final int[] rows;
+    private final String[] strings;
+    private final Map<String, String>[] maps;
+    private final List<String>[] lists;
+    private final long footprint;
+    private final long sourceFootprint;
+    private Set<Entry<String, FlatView>> entrySet;
+
+    private CompactFlatViews(String[] paths,
+                             int[] rows,
+                             String[] strings,
+                             Map<String, String>[] maps,
+                             List<String>[] lists,
+                             long sourceFootprint) {
+        this.paths = paths;
+        this.rows = rows;
+        this.strings = strings;
+        this.maps = maps;
+        this.lists = lists;
+        this.sourceFootprint = sourceFootprint;
+        this.footprint = estimateFootprint();
+    }
+
+    /**
+     * @param views flattened views keyed by resource path
+     * @return the given views if they are already compact, or a compact copy of them
+     */
+    public static CompactFlatViews of(Map<String, FlatView> views) {
+        if (views instanceof CompactFlatViews) {
+            return (CompactFlatViews) views;
+        }
+        final String[] paths = views.keySet().toArray(new String[0]);
+        Arrays.sort(paths);
+        final Dictionary<String> strings = new Dictionary<>();
+        final Dictionary<Map<String, String>> maps = new Dictionary<>();
+        final Dictionary<List<String>> lists = new Dictionary<>();
+        final int[] rows = new int[paths.length * ROW_SIZE];
+        long sourceFootprint = 0;
+        for (int i = 0; i < paths.length; i++) {
+            final FlatView view = views.get(paths[i]);
+            final int row = i * ROW_SIZE;
+            for (Column column : COLUMNS) {
+                rows[row + column.ordinal()] = strings.id(column.getter.apply(view));
+            }
+            rows[row + LABELS] = maps.id(intern(view.getLabelsMap(), strings));
+            rows[row + RESOURCE_UI] = maps.id(intern(view.getResourceUiMap(), strings));
+            rows[row + VIEW_UI] = maps.id(intern(view.getViewUiMap(), strings));
+            rows[row + ROLE_UI] = maps.id(intern(view.getRoleUiMap(), strings));
+            rows[row + ROLE_CATEGORIES] = lists.id(intern(view.getRoleCategoriesList(), strings));
+            paths[i] = strings.intern(paths[i]);
+            sourceFootprint += estimateFootprint(paths[i], view);
+        }
+        return new CompactFlatViews(paths,
+                                    rows,
+                                    strings.toArray(new String[0]),
+                                    maps.toArray(mapArray(0)),
+                                    lists.toArray(listArray(0)),
+                                    sourceFootprint);
+    }
+
+    @Override
+    public int size() {
+        return paths.length;
+    }
+
+    /**
+     * @return the resource path of the view at the given position
+     */
+    public String path(int position) {
+        return paths[position];
+    }
+
+    /**
+     * @return the position of the view with the given resource path, or a negative number if there is none
+     */
+    public int position(String path) {
+        final int found = Arrays.binarySearch(paths, path);
+        return found >= 0 ? found : -1;
+    }
+
+    /**
+     * @return the position of the first view with a resource path after the given one, or {@link #size()} if there
+     * is none
+     */
+    public int positionAfter(String path) {
+        final int found = Arrays.binarySearch(paths, path);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    public String get(int position, Column column) {
+        return strings[rows[position * ROW_SIZE + column.ordinal()]];
+    }
+
+    public Map<String, String> getLabels(int position) {
+        return maps[rows[position * ROW_SIZE + LABELS]];
+    }
+
+    public Map<String, String> getResourceUi(int position) {
+        return maps[rows[position * ROW_SIZE + RESOURCE_UI]];
+    }
+
+    public Map<String, String> getViewUi(int position) {
+        return maps[rows[position * ROW_SIZE + VIEW_UI]];
+    }
+
+    public Map<String, String> getRoleUi(int position) {
+        return maps[rows[position * ROW_SIZE + ROLE_UI]];
+    }
+
+    public List<String> getRoleCategories(int position) {
+        return lists[rows[position * ROW_SIZE + ROLE_CATEGORIES]];
+    }
+
+    /**
+     * @return the view at the given position as a new message
+     */
+    public FlatView view(int position) {
+        return FlatView.newBuilder()
+                       .setResourcePath(get(position, Column.RESOURCE_PATH))
+                       .setUmbrella(get(position, Column.UMBRELLA))
+                       .setResourceName(get(position, Column.RESOURCE_NAME))
+                       .setViewName(get(position, Column.VIEW_NAME))
+                       .setRoleName(get(position, Column.ROLE_NAME))
+                       .setInterfaceName(get(position, Column.INTERFACE_NAME))
+                       .setInterfaceUri(get(position, Column.INTERFACE_URI))
+                       .setContentType(get(position, Column.CONTENT_TYPE))
+                       .setServiceName(get(position, Column.SERVICE_NAME))
+                       .setPlatform(get(position, Column.PLATFORM))
+                       .setPlatformService(get(position, Column.PLATFORM_SERVICE))
+                       .setMaxTokenTtl(get(position, Column.MAX_TOKEN_TTL))
+                       .putAllLabels(getLabels(position))
+                       .putAllResourceUi(getResourceUi(position))
+                       .putAllViewUi(getViewUi(position))
+                       .putAllRoleUi(getRoleUi(position))
+                       .addAllRoleCategories(getRoleCategories(position))
+                       .build();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && position((String) key) >= 0;
+    }
+
+    @Override
+    public FlatView get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        final int position = position((String) key);
+        return position >= 0 ? view(position) : null;
+    }
+
+    @Override
+    public Set<Entry<String, FlatView>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, FlatView>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < paths.length;
+                        }
+
+                        @Override
+                        public Entry<String, FlatView> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final int position = next++;
+                            return new SimpleImmutableEntry<>(paths[position], view(position));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return paths.length;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * @return approximate number of bytes of heap held by these views
+     */
+    public long getFootprint() {
+        return footprint;
+    }
+
+    /**
+     * @return approximate number of bytes of heap held by the {@link FlatView} messages these views were encoded from
+     */
+    public long getSourceFootprint() {
+        return sourceFootprint;
+    }
+
+    private long estimateFootprint() {
+        long bytes = 4L * paths.length + 4L * rows.length;
+        for (String string : strings) {
+            bytes += stringFootprint(string);
+        }
+        for (Map<String, String> map : maps) {
+            bytes += 64 + 40L * map.size();
+        }
+        for (List<String> list : lists) {
+            bytes += 32 + 4L * list.size();
+        }
+        return bytes;
+    }
+
+    /**
+     * Rough heap size of a parsed {@link FlatView} and its key, with none of its strings shared.
+     */
+    private static long estimateFootprint(String path, FlatView view) {
+        long bytes = 96 + stringFootprint(path);
+        for (Column column : COLUMNS) {
+            bytes += stringFootprint(column.getter.apply(view));
+        }
+        for (Map<String, String> map : List.of(view.getLabelsMap(),
+                                               view.getResourceUiMap(),
+                                               view.getViewUiMap(),
+                                               view.getRoleUiMap())) {
+            bytes += 96;
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                bytes += 48 + stringFootprint(entry.getKey()) + stringFootprint(entry.getValue());
+            }
+        }
+        bytes += 32;
+        for (String category : view.getRoleCategoriesList()) {
+            bytes += 4 + stringFootprint(category);
+        }
+        return bytes;
+    }
+
+    private static long stringFootprint(String string) {
+        return string.isEmpty() ? 0 : 40 + string.length();
+    }
+
+    private static Map<String, String> intern(Map<String, String> map, Dictionary<String> strings) {
+        if (map.isEmpty()) {
+            return Map.of();
+        }
+        final Map<String, String> interned = new LinkedHashMap<>(map.size() * 4 / 3 + 1);
+        map.forEach((key, value) -> interned.put(strings.intern(key), strings.intern(value)));
+        return Collections.unmodifiableMap(interned);
+    }
+
+    private static List<String> intern(List<String> list, Dictionary<String> strings) {
+        if (list.isEmpty()) {
+            return List.of();
+        }
+        final String[] interned = new String[list.size()];
+        for (int i = 0; i < interned.length; i++) {
+            interned[i] = strings.intern(list.get(i));
+        }
+        return List.of(interned);
+    }
+
+    /**
+     * Numbers distinct values in the order they are first seen.
+     */
+    // Arrays of a parameterized type can only be created raw; these only ever hold maps and lists of strings
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Map<String, String>[] mapArray(int length) {
+        return new Map[length];
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<String>[] listArray(int length) {
+        return new List[length];
+    }
+
+    private static class Dictionary<T> {
+        private final Map<T, Integer> ids = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int id(T value) {
+            return ids.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        T intern(T value) {
+            return values.get(id(value));
+        }
+
+        T[] toArray(T[] array) {
+            return values.toArray(array);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.dnastack.ddap.common.catalog;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps only the requested fields of catalog messages before they are serialized, like a protobuf {@code FieldMask}
+ * limited to top-level fields. Paths are comma separated and may use JSON or proto field names, for example
+ * {@code resourceName,view_name,interfaceUri}. A path into a map field, such as {@code labels.topic}, keeps only that
+ * key of the map.
+ * <p>
+ * Projections are immutable and can be applied concurrently.
+ */
+public class FieldProjection<T extends Message> {
+
+    private final List<FieldDescriptor> fields;
+    private final Map<FieldDescriptor, Set<String>> mapKeys;
+
+    private FieldProjection(List<FieldDescriptor> fields, Map<FieldDescriptor, Set<String>> mapKeys) {
+        this.fields = fields;
+        this.mapKeys = mapKeys;
+    }
+
+    /**
+     * @param paths           comma separated field paths, or null or blank to keep every field
+     * @param defaultInstance the default instance of the messages to project
+     * @throws IllegalArgumentException if a path does not name a field of the message
+     */
+    public static <T extends Message> FieldProjection<T> parse(String paths, T defaultInstance) {
+        if (paths == null || paths.isBlank()) {
+            return new FieldProjection<>(null, Map.of());
+        }
+        final Descriptor descriptor = defaultInstance.getDescriptorForType();
+        final List<FieldDescriptor> fields = new ArrayList<>();
+        final Map<FieldDescriptor, Set<String>> mapKeys = new HashMap<>();
+        for (String path : paths.split(",")) {
+            final String trimmed = path.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            final int dot = trimmed.indexOf('.');
+            final FieldDescriptor field = field(descriptor, dot < 0 ? trimmed : trimmed.substring(0, dot));
+            if (field == null || (dot >= 0 && !isStringKeyedMap(field))) {
+                throw new IllegalArgumentException("Unknown field: " + trimmed);
+            }
+            if (dot < 0) {
+                // A whole field overrides any keys of it
+                mapKeys.remove(field);
+                if (!fields.contains(field)) {
+                    fields.add(field);
+                }
+            } else if (!fields.contains(field) || mapKeys.containsKey(field)) {
+                if (!fields.contains(field)) {
+                    fields.add(field);
+                }
+                mapKeys.computeIfAbsent(field, f -> new HashSet<>()).add(trimmed.substring(dot + 1));
+            }
+        }
+        return new FieldProjection<>(fields, mapKeys);
+    }
+
+    /**
+     * @return true if this projection keeps every field
+     */
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    /**
+     * @return the message with only the projected fields, or the message itself if every field is kept
+     */
+    @SuppressWarnings("unchecked")
+    public T apply(T message) {
+        if (isAll()) {
+            return message;
+        }
+        final Message.Builder builder = message.newBuilderForType();
+        for (FieldDescriptor field : fields) {
+            final Set<String> keys = mapKeys.get(field);
+            if (keys != null) {
+                final FieldDescriptor keyField = field.getMessageType().findFieldByNumber(1);
+                for (Object entry : (List<?>) message.getField(field)) {
+                    if (keys.contains(((Message) entry).getField(keyField))) {
+                        builder.addRepeatedField(field, entry);
+                    }
+                }
+            } else if (field.isRepeated() ? message.getRepeatedFieldCount(field) > 0 : message.hasField(field)) {
+                builder.setField(field, message.getField(field));
+            }
+        }
+        return (T) builder.build();
+    }
+
+    /**
+     * Like {@link #apply(Message)}, adding the serialized bytes left out of the message to {@code saved}.
+     */
+    public T apply(T message, AtomicLong saved) {
+        final T projected = apply(message);
+        if (projected != message) {
+            saved.addAndGet(message.getSerializedSize() - projected.getSerializedSize());
+        }
+        return projected;
+    }
+
+    /**
+     * Records the serialized bytes a projection saved on one response as {@code ddap.catalog.projection.saved},
+     * tagged with the endpoint. Nothing is recorded for responses that were not projected.
+     */
+    public void recordSaved(String endpoint, long savedBytes) {
+        if (isAll()) {
+            return;
+        }
+        DistributionSummary.builder("ddap.catalog.projection.saved")
+                           .description("Serialized bytes left out of a catalog response by a field projection")
+                           .baseUnit("bytes")
+                           .tag("endpoint", endpoint)
+                           .register(Metrics.globalRegistry)
+                           .record(savedBytes);
+    }
+
+    private static FieldDescriptor field(Descriptor descriptor, String name) {
+        final FieldDescriptor field = descriptor.findFieldByName(name);
+        if (field != null) {
+            return field;
+        }
+        for (FieldDescriptor candidate : descriptor.getFields()) {
+            if (candidate.getJsonName().equals(name)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isStringKeyedMap(FieldDescriptor field) {
+        return field.isMapField()
+               && field.getMessageType().findFieldByNumber(1).getType() == FieldDescriptor.Type.STRING;
+    }
+
+}
@@ -0,0 +1,226 @@
+package com.dnastack.ddap.common.catalog;
+
+import com.dnastack.ddap.common.client.ReactiveDamClient;
+import com.dnastack.ddap.common.exception.UnknownDamException;
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a {@link FlatViewIndex} per DAM and realm over the views returned by
+ * {@link ReactiveDamClient#getFlattenedViews}. An index is rebuilt whenever the client returns a different map than the
+ * one it was built from, so clients should cache their catalogs (see
+ * {@link com.dnastack.ddap.common.client.CachingReactiveDamClient}) for indexes to be reused. Indexes are built on the
+ * bounded elastic scheduler rather than on the calling thread, and installed only if the index they replace is still
+ * current; requests racing the same rebuild may each build an index, and the first one installed is kept.
+ * <p>
+ * The same goes for the {@link FlatViewSearchIndex} searched by {@link #search}, which is built on first use and then
+ * updated from its previous version, off the calling thread in the same way.
+ * <p>
+ * Index build and query times are recorded as {@code ddap.dam.catalog.index.build} and
+ * {@code ddap.dam.catalog.index.query}, and the memory held by a DAM's indexes as
+ * {@code ddap.dam.catalog.index.footprint}, all tagged with the DAM. Search index build and search times are
+ * recorded as {@code ddap.dam.catalog.search.build} and {@code ddap.dam.catalog.search.query}.
+ */
+@Slf4j
+@Component
+public class FlatViewCatalog {
+
+    private final Map<String, ReactiveDamClient> damClients;
+    private final ConcurrentMap<IndexKey, FlatViewIndex> indexes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<IndexKey, FlatViewSearchIndex> searchIndexes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FlatViewCatalog(Map<String, ReactiveDamClient> damClients) {
+        this.damClients = damClients;
+        for (String damId : damClients.keySet()) {
+            Gauge.builder("ddap.dam.catalog.index.footprint", indexes, all -> footprint(all, damId))
+                 .description("Approximate memory held by the flat view indexes of the DAM")
+                 .baseUnit("bytes")
+                 .tag("dam", damId)
+                 .register(Metrics.globalRegistry);
+        }
+    }
+
+    /**
+     * @return the index over the current flattened views of the given DAM and realm
+     * @throws UnknownDamException (as error signal) if the DAM is not known
+     */
+    public Mono<FlatViewIndex> getIndex(String damId, String realm) {
+        final ReactiveDamClient damClient = damClients.get(damId);
+        if (damClient == null) {
+            return Mono.error(new UnknownDamException(damId));
+        }
+        final IndexKey key = new IndexKey(damId, realm);
+        return damClient.getFlattenedViews(realm)
+                        .flatMap(views -> {
+                            final FlatViewIndex current = indexes.get(key);
+                            if (current != null && current.isBuiltFrom(views)) {
+                                return Mono.just(current);
+                            }
+                            return Mono.fromCallable(() -> build(damId, views))
+                                       .subscribeOn(Schedulers.boundedElastic())
+                                       .map(built -> install(indexes, key, current, built));
+                        });
+    }
+
+    /**
+     * Queries the index of the given DAM and realm. See {@link FlatViewIndex#query}.
+     */
+    public Mono<FlatViewIndex.Page> query(String damId,
+                                          String realm,
+                                          Map<String, ? extends Collection<String>> filters,
+                                          String afterPath,
+                                          int limit) {
+        return getIndex(damId, realm)
+            .map(index -> {
+                final long start = System.nanoTime();
+                try {
+                    return index.query(filters, afterPath, limit);
+                } finally {
+                    Timer.builder("ddap.dam.catalog.index.query")
+                         .description("Time spent querying a flat view index")
+                         .tag("dam", damId)
+                         .register(Metrics.globalRegistry)
+                         .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+    }
+
+    /**
+     * Streams the views of the given DAM and realm matching the filters, in path order, materialising each view only
+     * when it is requested downstream. See {@link FlatViewIndex#iterate}.
+     */
+    public Flux<Map.Entry<String, FlatView>> stream(String damId,
+                                                    String realm,
+                                                    Map<String, ? extends Collection<String>> filters,
+                                                    String afterPath,
+                                                    int limit) {
+        return getIndex(damId, realm).flatMapIterable(index -> index.iterate(filters, afterPath, limit));
+    }
+
+    /**
+     * Searches the names of the flattened views of every DAM, or of one DAM, in the given realm. DAMs that cannot
+     * be reached are left out of the results. See {@link FlatViewSearchIndex#search}.
+     *
+     * @param damId the DAM to search, or null to search all of them
+     * @return the best {@code limit} results over all searched DAMs, best first
+     * @throws UnknownDamException (as error signal) if the DAM is given and not known
+     */
+    public Mono<List<SearchHit>> search(String realm, String damId, String query, int limit) {
+        if (damId != null && !damClients.containsKey(damId)) {
+            return Mono.error(new UnknownDamException(damId));
+        }
+        if (query == null || query.isBlank()) {
+            return Mono.error(new IllegalArgumentException("Search query must not be blank"));
+        }
+        final Comparator<SearchHit> ranking = Comparator.comparingInt((SearchHit hit) -> hit.getHit().getScore())
+                                                        .reversed()
+                                                        .thenComparing(SearchHit::getDamId)
+                                                        .thenComparing(hit -> hit.getHit().getResourcePath());
+        return Flux.fromIterable(damId == null ? damClients.keySet() : List.of(damId))
+                   .flatMap(id -> getSearchIndex(id, realm)
+                       .flatMapIterable(index -> {
+                           final long start = System.nanoTime();
+                           try {
+                               return index.search(query, limit);
+                           } finally {
+                               Timer.builder("ddap.dam.catalog.search.query")
+                                    .description("Time spent searching a flat view search index")
+                                    .tag("dam", id)
+                                    .register(Metrics.globalRegistry)
+                                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                           }
+                       })
+                       .map(hit -> new SearchHit(id, hit))
+                       .onErrorResume(e -> !(e instanceof IllegalArgumentException), e -> {
+                           log.warn("Could not search flat views of DAM {}: {}", id, e.toString());
+                           return Flux.empty();
+                       }))
+                   .sort(ranking)
+                   .take(limit)
+                   .collectList();
+    }
+
+    private Mono<FlatViewSearchIndex> getSearchIndex(String damId, String realm) {
+        final IndexKey key = new IndexKey(damId, realm);
+        return damClients.get(damId)
+                         .getFlattenedViews(realm)
+                         .flatMap(views -> {
+                             final FlatViewSearchIndex current = searchIndexes.get(key);
+                             if (current != null && current.isBuiltFrom(views)) {
+                                 return Mono.just(current);
+                             }
+                             return Mono.fromCallable(() -> buildSearch(damId, views, current))
+                                        .subscribeOn(Schedulers.boundedElastic())
+                                        .map(built -> install(searchIndexes, key, current, built));
+                         });
+    }
+
+    private static FlatViewSearchIndex buildSearch(String damId, Map<String, FlatView> views, FlatViewSearchIndex previous) {
+        return Timer.builder("ddap.dam.catalog.search.build")
+                    .description("Time spent building a flat view search index")
+                    .tag("dam", damId)
+                    .register(Metrics.globalRegistry)
+                    .record(() -> FlatViewSearchIndex.build(views, previous));
+    }
+
+    private static FlatViewIndex build(String damId, Map<String, FlatView> views) {
+        return Timer.builder("ddap.dam.catalog.index.build")
+                    .description("Time spent building a flat view index")
+                    .tag("dam", damId)
+                    .register(Metrics.globalRegistry)
+                    .record(() -> FlatViewIndex.build(views));
+    }
+
+    /**
+     * Replaces {@code current} with {@code built}, unless another request replaced it first.
+     *
+     * @return {@code built}, which answers the request it was built for either way
+     */
+    private static <T> T install(ConcurrentMap<IndexKey, T> indexes, IndexKey key, T current, T built) {
+        if (current == null) {
+            indexes.putIfAbsent(key, built);
+        } else {
+            indexes.replace(key, current, built);
+        }
+        return built;
+    }
+
+    private static double footprint(Map<IndexKey, FlatViewIndex> indexes, String damId) {
+        return indexes.entrySet()
+                      .stream()
+                      .filter(entry -> entry.getKey().getDamId().equals(damId))
+                      .mapToLong(entry -> entry.getValue().getFootprint())
+                      .sum();
+    }
+
+    @Value
+    public static class SearchHit {
+        String damId;
+        FlatViewSearchIndex.Hit hit;
+    }
+
+    @Value
+    private static class IndexKey {
+        String damId;
+        String realm;
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.dnastack.ddap.common.catalog;
+
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import lombok.Value;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable index over the flattened views of one DAM realm, answering the filters offered by the UI without
+ * scanning every view. Every filterable field has an inverted index from value to the positions of the views having
+ * it. A query ORs the postings of the requested values of each field into a bitmap and ANDs the bitmaps of the
+ * fields together.
+ * <p>
+ * Views are kept in resource path order, so that pages can be continued after the last path returned, even if the
+ * index was rebuilt in between. The index keeps only the sorted paths next to its postings, and reads the views on a
+ * returned page from the map it was built from, so it adds no copy of the catalog to the one cached by the client.
+ */
+public class FlatViewIndex {
+
+    public static final String CONTENT_TYPE = "contentType";
+    public static final String SERVICE_NAME = "serviceName";
+    public static final String PLATFORM = "platform";
+    public static final String INTERFACE_NAME = "interfaceName";
+    public static final String ROLE_CATEGORY = "roleCategory";
+    /**
+     * Prefix of label fields: the values of label {@code key} are indexed as field {@code label.key}.
+     */
+    public static final String LABEL_PREFIX = "label.";
+
+    private static final Set<String> FIELDS = Set.of(CONTENT_TYPE, SERVICE_NAME, PLATFORM, INTERFACE_NAME, ROLE_CATEGORY);
+
+    private final Map<String, FlatView> source;
+    private final String[] paths;
+    private final Map<String, Map<String, Postings>> index;
+    private final long footprint;
+
+    private FlatViewIndex(Map<String, FlatView> source, String[] paths, Map<String, Map<String, Postings>> index) {
+        this.source = source;
+        this.paths = paths;
+        this.index = index;
+        this.footprint = 4L * paths.length + estimateFootprint(index);
+    }
+
+    /**
+     * @param views flattened views keyed by resource path, as returned by the DAM. Must not be modified afterwards.
+     *              Views that are not {@link CompactFlatViews} are read through a temporary copy in that form, which
+     *              is dropped once the index is built.
+     */
+    public static FlatViewIndex build(Map<String, FlatView> views) {
+        final CompactFlatViews compact = CompactFlatViews.of(views);
+        final String[] paths = new String[compact.size()];
+        final Map<String, Map<String, Postings>> index = new HashMap<>();
+        for (int i = 0; i < compact.size(); i++) {
+            paths[i] = compact.path(i);
+            final int position = i;
+            post(index, CONTENT_TYPE, compact.get(i, CompactFlatViews.Column.CONTENT_TYPE), position);
+            post(index, SERVICE_NAME, compact.get(i, CompactFlatViews.Column.SERVICE_NAME), position);
+            post(index, PLATFORM, compact.get(i, CompactFlatViews.Column.PLATFORM), position);
+            post(index, INTERFACE_NAME, compact.get(i, CompactFlatViews.Column.INTERFACE_NAME), position);
+            for (String category : compact.getRoleCategories(i)) {
+                post(index, ROLE_CATEGORY, category, position);
+            }
+            compact.getLabels(i).forEach((key, value) -> post(index, LABEL_PREFIX + key, value, position));
+        }
+        index.values().forEach(postings -> postings.values().forEach(Postings::trim));
+        return new FlatViewIndex(views, paths, index);
+    }
+
+    /**
+     * @return true if the given field can be used in a query
+     */
+    public static boolean isField(String field) {
+        return FIELDS.contains(field) || (field.startsWith(LABEL_PREFIX) && field.length() > LABEL_PREFIX.length());
+    }
+
+    /**
+     * @return true if this index was built from the given map instance
+     */
+    public boolean isBuiltFrom(Map<String, FlatView> views) {
+        return source == views;
+    }
+
+    public int size() {
+        return paths.length;
+    }
+
+    /**
+     * @return approximate number of bytes held by the index itself. The views are not counted.
+     */
+    public long getFootprint() {
+        return footprint;
+    }
+
+    /**
+     * @param filters   the values to match per field. A view matches if, for every field, it has one of the given
+     *                  values. Fields without values are ignored.
+     * @param afterPath only views with a resource path after this one are returned. May be null to start at the
+     *                  beginning.
+     * @param limit     maximum number of views to return
+     * @return the matching views in resource path order. Never null.
+     * @throws IllegalArgumentException if a field cannot be filtered by
+     */
+    public Page query(Map<String, ? extends Collection<String>> filters, String afterPath, int limit) {
+        final BitSet matches = matching(filters);
+        final int start = afterPath == null ? 0 : positionAfter(afterPath);
+        final Map<String, FlatView> page = new LinkedHashMap<>();
+        int next = nextMatch(matches, start);
+        while (next >= 0 && page.size() < limit) {
+            page.put(paths[next], source.get(paths[next]));
+            next = nextMatch(matches, next + 1);
+        }
+        return new Page(page, matches.cardinality(), next >= 0);
+    }
+
+    /**
+     * Like {@link #query}, but without counting the matches, and materialising each view only as the returned
+     * iterable's iterator reaches it.
+     *
+     * @return the matching views keyed by resource path, in path order. Never null.
+     * @throws IllegalArgumentException if a field cannot be filtered by
+     */
+    public Iterable<Map.Entry<String, FlatView>> iterate(Map<String, ? extends Collection<String>> filters,
+                                                         String afterPath,
+                                                         int limit) {
+        final BitSet matches = matching(filters);
+        final int start = afterPath == null ? 0 : positionAfter(afterPath);
+        return () -> new Iterator<>() {
+            private int next = nextMatch(matches, start);
+            private int returned;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0 && returned < limit;
+            }
+
+            @Override
+            public Map.Entry<String, FlatView> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final Map.Entry<String, FlatView> entry = Map.entry(paths[next], source.get(paths[next]));
+                next = nextMatch(matches, next + 1);
+                returned++;
+                return entry;
+            }
+        };
+    }
+
+    private BitSet matching(Map<String, ? extends Collection<String>> filters) {
+        BitSet matches = null;
+        for (Map.Entry<String, ? extends Collection<String>> filter : filters.entrySet()) {
+            if (!isField(filter.getKey())) {
+                throw new IllegalArgumentException("Cannot filter flat views by " + filter.getKey());
+            }
+            if (filter.getValue().isEmpty()) {
+                continue;
+            }
+            final Map<String, Postings> values = index.getOrDefault(filter.getKey(), Map.of());
+            final BitSet union = new BitSet(paths.length);
+            for (String value : filter.getValue()) {
+                final Postings postings = values.get(value);
+                if (postings != null) {
+                    postings.addTo(union);
+                }
+            }
+            if (matches == null) {
+                matches = union;
+            } else {
+                matches.and(union);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        if (matches == null) {
+            matches = new BitSet(paths.length);
+            matches.set(0, paths.length);
+        }
+        return matches;
+    }
+
+    private int nextMatch(BitSet matches, int from) {
+        return from < paths.length ? matches.nextSetBit(from) : -1;
+    }
+
+    private int positionAfter(String path) {
+        final int found = Arrays.binarySearch(paths, path);
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    private static void post(Map<String, Map<String, Postings>> index, String field, String value, int position) {
+        if (value.isEmpty()) {
+            return;
+        }
+        index.computeIfAbsent(field, f -> new HashMap<>())
+             .computeIfAbsent(value, v -> new Postings())
+             .add(position);
+    }
+
+    private static long estimateFootprint(Map<String, Map<String, Postings>> index) {
+        long bytes = 0;
+        for (Map.Entry<String, Map<String, Postings>> field : index.entrySet()) {
+            bytes += 64 + 2L * field.getKey().length();
+            for (Map.Entry<String, Postings> value : field.getValue().entrySet()) {
+                bytes += 64 + 2L * value.getKey().length() + value.getValue().footprint();
+            }
+        }
+        return bytes;
+    }
+
+    @Value
+    public static class Page {
+        /**
+         * Matching views keyed by resource path, in path order.
+         */
+        Map<String, FlatView> views;
+        /**
+         * Number of views matching the filters, on all pages.
+         */
+        int totalSize;
+        boolean more;
+    }
+
+}
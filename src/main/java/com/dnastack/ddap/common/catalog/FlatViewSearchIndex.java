@@ -0,0 +1,347 @@
+package com.dnastack.ddap.common.catalog;
+
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Immutable search index over the names of the flattened views of one DAM realm: resource and view names, label
+ * values and the resource, view and role UI strings.
+ * <p>
+ * Terms of three characters or more are looked up in a trigram index and matched anywhere in a name. Shorter terms
+ * match the start of a word, looked up in a sorted word list. Candidates are then checked against the names, so
+ * every result contains every term of the query. Results are ranked by how well each term matches (whole name, start
+ * of name, start of word, elsewhere), with resource and view names counting double.
+ * <p>
+ * Building from a previous index reuses the analysis of every view whose names did not change, so a refreshed catalog
+ * only costs the views that did. Returned results are read from the map the index was built from, so the index adds no
+ * copy of the catalog to the one cached by the client.
+ */
+public class FlatViewSearchIndex {
+
+    private static final int NAME_FIELDS = 2;
+    private static final int NAME_WEIGHT = 2;
+    private static final long[] NO_GRAMS = new long[0];
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final Map<String, FlatView> source;
+    private final Document[] documents;
+    private final Map<Long, int[]> grams;
+    private final String[] words;
+    private final int[][] wordPositions;
+    private final int reused;
+
+    private FlatViewSearchIndex(Map<String, FlatView> source,
+                                Document[] documents,
+                                Map<Long, int[]> grams,
+                                String[] words,
+                                int[][] wordPositions,
+                                int reused) {
+        this.source = source;
+        this.documents = documents;
+        this.grams = grams;
+        this.words = words;
+        this.wordPositions = wordPositions;
+        this.reused = reused;
+    }
+
+    /**
+     * @param views    flattened views keyed by resource path, as returned by the DAM. Must not be modified afterwards.
+     *                 Views that are not {@link CompactFlatViews} are read through a temporary copy in that form,
+     *                 which is dropped once the index is built.
+     * @param previous index over an earlier version of the same catalog, whose unchanged views are reused. May be
+     *                 null.
+     */
+    public static FlatViewSearchIndex build(Map<String, FlatView> views, FlatViewSearchIndex previous) {
+        final CompactFlatViews compact = CompactFlatViews.of(views);
+        final Document[] documents = new Document[compact.size()];
+        int reused = 0;
+        for (int i = 0; i < documents.length; i++) {
+            final String path = compact.path(i);
+            final String[] fields = fields(compact, i);
+            final Document earlier = previous == null ? null : previous.find(path);
+            if (earlier != null && Arrays.equals(earlier.getFields(), fields)) {
+                documents[i] = earlier;
+                reused++;
+            } else {
+                documents[i] = analyze(path, fields);
+            }
+        }
+
+        final Map<Long, Postings> gramPostings = new HashMap<>();
+        final Map<String, Postings> wordPostings = new HashMap<>();
+        for (int i = 0; i < documents.length; i++) {
+            for (long gram : documents[i].getGrams()) {
+                gramPostings.computeIfAbsent(gram, g -> new Postings()).add(i);
+            }
+            for (String word : documents[i].getWords()) {
+                wordPostings.computeIfAbsent(word, w -> new Postings()).add(i);
+            }
+        }
+        final Map<Long, int[]> grams = new HashMap<>(gramPostings.size() * 4 / 3 + 1);
+        gramPostings.forEach((gram, postings) -> grams.put(gram, postings.toArray()));
+        final String[] words = wordPostings.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        final int[][] wordPositions = new int[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            wordPositions[i] = wordPostings.get(words[i]).toArray();
+        }
+        return new FlatViewSearchIndex(views, documents, grams, words, wordPositions, reused);
+    }
+
+    /**
+     * @return true if this index was built from the given map instance
+     */
+    public boolean isBuiltFrom(Map<String, FlatView> views) {
+        return source == views;
+    }
+
+    public int size() {
+        return documents.length;
+    }
+
+    /**
+     * @return number of views whose analysis was reused from the previous index when this one was built
+     */
+    public int getReused() {
+        return reused;
+    }
+
+    /**
+     * @param query one or more whitespace separated terms, all of which must match
+     * @param limit maximum number of results
+     * @return the best matching views, best first. Never null.
+     * @throws IllegalArgumentException if the query has no terms
+     */
+    public List<Hit> search(String query, int limit) {
+        final String[] terms = normalize(query).trim().split("\\s+");
+        if (terms.length == 0 || terms[0].isEmpty()) {
+            throw new IllegalArgumentException("Search query must not be blank");
+        }
+
+        int[] candidates = null;
+        for (String term : terms) {
+            final int[] matches = term.length() >= 3 ? gramCandidates(term) : prefixCandidates(term);
+            candidates = candidates == null ? matches : intersect(candidates, matches);
+            if (candidates.length == 0) {
+                return List.of();
+            }
+        }
+
+        final Comparator<Hit> ranking = Comparator.comparingInt(Hit::getScore)
+                                                  .reversed()
+                                                  .thenComparing(Hit::getResourcePath);
+        final PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+        for (int position : candidates) {
+            final Document document = documents[position];
+            final int score = score(document, terms);
+            if (score > 0) {
+                best.add(new Hit(document.getPath(), score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        final List<Hit> hits = new ArrayList<>(best);
+        hits.sort(ranking);
+        hits.forEach(hit -> hit.view = source.get(hit.resourcePath));
+        return hits;
+    }
+
+    private Document find(String path) {
+        int low = 0;
+        int high = documents.length - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = documents[middle].getPath().compareTo(path);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return documents[middle];
+            }
+        }
+        return null;
+    }
+
+    private int[] gramCandidates(String term) {
+        final long[] termGrams = grams(term);
+        final int[][] postings = new int[termGrams.length][];
+        for (int i = 0; i < termGrams.length; i++) {
+            postings[i] = grams.getOrDefault(termGrams[i], NO_POSITIONS);
+        }
+        // Rarest first, so that the intersection shrinks as early as possible
+        Arrays.sort(postings, Comparator.comparingInt(positions -> positions.length));
+        int[] candidates = postings[0];
+        for (int i = 1; i < postings.length && candidates.length > 0; i++) {
+            candidates = intersect(candidates, postings[i]);
+        }
+        return candidates;
+    }
+
+    private int[] prefixCandidates(String term) {
+        final int found = Arrays.binarySearch(words, term);
+        final BitSet positions = new BitSet(documents.length);
+        for (int i = found >= 0 ? found : -found - 1; i < words.length && words[i].startsWith(term); i++) {
+            for (int position : wordPositions[i]) {
+                positions.set(position);
+            }
+        }
+        return positions.stream().toArray();
+    }
+
+    private static int score(Document document, String[] terms) {
+        int total = 0;
+        for (String term : terms) {
+            int best = 0;
+            final String[] fields = document.getFields();
+            for (int i = 0; i < fields.length; i++) {
+                final int index = fields[i].indexOf(term);
+                if (index < 0) {
+                    continue;
+                }
+                int score;
+                if (index == 0) {
+                    score = fields[i].length() == term.length() ? 4 : 3;
+                } else {
+                    score = Character.isLetterOrDigit(fields[i].charAt(index - 1)) ? 1 : 2;
+                }
+                if (i < NAME_FIELDS) {
+                    score *= NAME_WEIGHT;
+                }
+                best = Math.max(best, score);
+            }
+            if (best == 0) {
+                // A trigram false positive: every trigram occurs, but not together
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    /**
+     * @return the lower case names of a view, starting with the {@link #NAME_FIELDS} resource and view names
+     */
+    private static String[] fields(CompactFlatViews views, int position) {
+        final List<String> fields = new ArrayList<>();
+        fields.add(normalize(views.get(position, CompactFlatViews.Column.RESOURCE_NAME)));
+        fields.add(normalize(views.get(position, CompactFlatViews.Column.VIEW_NAME)));
+        views.getLabels(position).values().forEach(value -> fields.add(normalize(value)));
+        views.getResourceUi(position).values().forEach(value -> fields.add(normalize(value)));
+        views.getViewUi(position).values().forEach(value -> fields.add(normalize(value)));
+        views.getRoleUi(position).values().forEach(value -> fields.add(normalize(value)));
+        return fields.toArray(new String[0]);
+    }
+
+    private static Document analyze(String path, String[] fields) {
+        long[] grams = NO_GRAMS;
+        final TreeSet<String> words = new TreeSet<>();
+        for (String field : fields) {
+            final long[] fieldGrams = grams(field);
+            final int length = grams.length;
+            grams = Arrays.copyOf(grams, length + fieldGrams.length);
+            System.arraycopy(fieldGrams, 0, grams, length, fieldGrams.length);
+            for (String word : field.split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return new Document(path, fields, distinct(grams), words.toArray(new String[0]));
+    }
+
+    private static long[] grams(String text) {
+        if (text.length() < 3) {
+            return NO_GRAMS;
+        }
+        final long[] grams = new long[text.length() - 2];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        return grams;
+    }
+
+    private static long[] distinct(long[] values) {
+        Arrays.sort(values);
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[count++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    private static int[] intersect(int[] left, int[] right) {
+        final int[] result = new int[Math.min(left.length, right.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    public static class Hit {
+        private final String resourcePath;
+        private final int score;
+        private FlatView view;
+
+        private Hit(String resourcePath, int score) {
+            this.resourcePath = resourcePath;
+            this.score = score;
+        }
+
+        public String getResourcePath() {
+            return resourcePath;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * @return the matching view, materialised for this result
+         */
+        public FlatView getView() {
+            return view;
+        }
+    }
+
+    @Value
+    private static class Document {
+        String path;
+        /**
+         * Lower case names, starting with the {@link #NAME_FIELDS} resource and view names.
+         */
+        String[] fields;
+        long[] grams;
+        String[] words;
+    }
+
+}
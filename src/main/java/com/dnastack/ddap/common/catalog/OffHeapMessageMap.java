@@ -0,0 +1,178 @@
+package com.dnastack.ddap.common.catalog;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only map of protobuf messages kept serialized in a direct {@link ByteBuffer}, outside the garbage collected
+ * heap. Only the sorted keys and the offsets of the entries stay on the heap; an entry is parsed every time it is
+ * read.
+ * <p>
+ * The buffer is released when the map is garbage collected. The direct memory held by all live maps is published as
+ * {@code ddap.dam.catalog.offheap}.
+ */
+public class OffHeapMessageMap<V extends Message> extends AbstractMap<String, V> {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final AtomicLong ALLOCATED = new AtomicLong();
+
+    static {
+        Gauge.builder("ddap.dam.catalog.offheap", ALLOCATED, AtomicLong::get)
+             .description("Direct memory held by cached catalogs stored off-heap")
+             .baseUnit("bytes")
+             .register(Metrics.globalRegistry);
+    }
+
+    private final String[] keys;
+    private final int[] offsets;
+    private final ByteBuffer buffer;
+    private final Parser<V> parser;
+    private Set<Entry<String, V>> entrySet;
+
+    private OffHeapMessageMap(String[] keys, int[] offsets, ByteBuffer buffer, Parser<V> parser) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.buffer = buffer;
+        this.parser = parser;
+        final long capacity = buffer.capacity();
+        ALLOCATED.addAndGet(capacity);
+        CLEANER.register(this, () -> ALLOCATED.addAndGet(-capacity));
+    }
+
+    /**
+     * @param entries                the messages to store
+     * @param defaultMessageInstance the default instance of the stored messages
+     * @throws OutOfMemoryError if the direct memory limit of the JVM does not leave room for the entries
+     */
+    @SuppressWarnings("unchecked")
+    public static <V extends Message> OffHeapMessageMap<V> of(Map<String, V> entries, V defaultMessageInstance) {
+        final String[] keys = entries.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+        final int[] offsets = new int[keys.length + 1];
+        long size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            offsets[i] = (int) size;
+            size += entries.get(keys[i]).getSerializedSize();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too large to store off-heap: " + entries.size() + " entries");
+            }
+        }
+        offsets[keys.length] = (int) size;
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        final CodedOutputStream output = CodedOutputStream.newInstance(buffer);
+        try {
+            for (String key : keys) {
+                entries.get(key).writeTo(output);
+            }
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new OffHeapMessageMap<>(keys,
+                                       offsets,
+                                       buffer.asReadOnlyBuffer(),
+                                       (Parser<V>) defaultMessageInstance.getParserForType());
+    }
+
+    /**
+     * @return bytes of direct memory held by this map
+     */
+    public long getOffHeapSize() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return approximate bytes of heap held by this map's keys and offsets
+     */
+    public long getOnHeapSize() {
+        long bytes = 4L * offsets.length + 4L * keys.length;
+        for (String key : keys) {
+            bytes += 40 + key.length();
+        }
+        return bytes;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && Arrays.binarySearch(keys, key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        final int position = Arrays.binarySearch(keys, key);
+        return position >= 0 ? parse(position) : null;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < keys.length;
+                        }
+
+                        @Override
+                        public Entry<String, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final int position = next++;
+                            return new SimpleImmutableEntry<>(keys[position], parse(position));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private V parse(int position) {
+        final ByteBuffer entry = buffer.duplicate();
+        entry.limit(offsets[position + 1]);
+        entry.position(offsets[position]);
+        try {
+            return parser.parseFrom(entry);
+        } catch (InvalidProtocolBufferException e) {
+            // Only ever written by this class
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
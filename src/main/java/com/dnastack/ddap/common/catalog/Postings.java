@@ -0,0 +1,47 @@
+package com.dnastack.ddap.common.catalog;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Ascending positions of the views having one value (or term) in a catalog index. Filled in order while the index
+ * is built, then trimmed and read only.
+ */
+class Postings {
+
+    private int[] positions = new int[4];
+    private int size;
+
+    void add(int position) {
+        if (size > 0 && positions[size - 1] == position) {
+            return;
+        }
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        positions[size++] = position;
+    }
+
+    void trim() {
+        positions = Arrays.copyOf(positions, size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long footprint() {
+        return 4L * positions.length;
+    }
+
+    void addTo(BitSet bits) {
+        for (int i = 0; i < size; i++) {
+            bits.set(positions[i]);
+        }
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(positions, size);
+    }
+
+}
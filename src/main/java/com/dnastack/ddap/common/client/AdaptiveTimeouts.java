@@ -0,0 +1,124 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.config.AdaptiveTimeoutProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.cloud.gateway.support.TimeoutException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.dnastack.ddap.common.util.TimeoutUtil.timeout;
+
+/**
+ * Per-operation latency histograms of one upstream and the attempt timeouts derived from them.
+ * <p>
+ * The first attempt of an operation gets {@code percentile × factor} of its observed latency, clamped to the
+ * configured minimum and maximum. Later attempts follow the shape of the original 1s → 10s → 30s → 80s ladder, scaled
+ * by the first attempt's timeout. Until enough samples are collected, or when adaptive timeouts are disabled, the
+ * first attempt gets one second, which reproduces the original ladder.
+ * <p>
+ * The timeout chosen for the latest attempt is published as {@code ddap.client.timeout}, tagged with the upstream and
+ * operation.
+ */
+public class AdaptiveTimeouts {
+
+    public static final int MAX_ATTEMPTS = 4;
+
+    private static final Duration BASE_TIMEOUT = Duration.ofSeconds(1);
+    private static final int[] LADDER = {1, 10, 30, 80};
+
+    private final String upstreamId;
+    private final AdaptiveTimeoutProperties properties;
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+    public AdaptiveTimeouts(String upstreamId, AdaptiveTimeoutProperties properties) {
+        this.upstreamId = upstreamId;
+        this.properties = properties;
+    }
+
+    /**
+     * @param operation name of the upstream operation, see {@link WebClientFactory#OPERATION_ATTRIBUTE}
+     * @param attempt   zero-based attempt number, less than {@link #MAX_ATTEMPTS}
+     * @return the timeout to apply to the given attempt. Never null.
+     */
+    public Duration getAttemptTimeout(String operation, int attempt) {
+        final Duration timeout = min(getFirstAttemptTimeout(operation).multipliedBy(LADDER[attempt]),
+                                     properties.getMaxTimeout());
+        getOperation(operation).currentTimeoutMillis.set(timeout.toMillis());
+        return timeout;
+    }
+
+    public Duration getMaxTimeout() {
+        return properties.getMaxTimeout();
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     * @return the observed latency of the operation at the given percentile, or empty if not enough samples have been
+     * collected yet.
+     */
+    public Optional<Duration> getObservedLatency(String operation, double percentile) {
+        final Operation op = getOperation(operation);
+        final long millis = op.histogram.getValueAtPercentile(percentile).orElse(-1);
+        return millis < 0 ? Optional.empty() : Optional.of(Duration.ofMillis(millis));
+    }
+
+    /**
+     * Applies the given timeout to an exchange and records how long it took. An exchange that times out is recorded
+     * with the timeout as its latency, so that slow periods push the observed percentiles up.
+     */
+    public <T> Mono<T> timed(String operation, Duration timeout, Mono<T> exchange) {
+        final Operation op = getOperation(operation);
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return timeout(exchange, timeout)
+                .doOnSuccess(ignore -> op.histogram.record(Duration.ofNanos(System.nanoTime() - start)))
+                .doOnError(TimeoutException.class, ignore -> op.histogram.record(timeout));
+        });
+    }
+
+    private Duration getFirstAttemptTimeout(String operation) {
+        if (!properties.isEnabled()) {
+            return BASE_TIMEOUT;
+        }
+        final OptionalLong observedMillis = getOperation(operation).histogram.getValueAtPercentile(properties.getPercentile());
+        if (observedMillis.isEmpty()) {
+            return BASE_TIMEOUT;
+        }
+        final Duration timeout = Duration.ofMillis((long) (observedMillis.getAsLong() * properties.getFactor()));
+        return min(max(timeout, properties.getMinTimeout()), properties.getMaxTimeout());
+    }
+
+    private Operation getOperation(String operation) {
+        return operations.computeIfAbsent(operation, Operation::new);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private class Operation {
+        private final LatencyHistogram histogram = new LatencyHistogram(properties.getWindow(), properties.getMinSamples());
+        private final AtomicLong currentTimeoutMillis = new AtomicLong();
+
+        private Operation(String name) {
+            Gauge.builder("ddap.client.timeout", currentTimeoutMillis, AtomicLong::get)
+                 .description("Timeout chosen for the latest attempt")
+                 .baseUnit("milliseconds")
+                 .tag("upstream", upstreamId)
+                 .tag("operation", name)
+                 .register(Metrics.globalRegistry);
+        }
+    }
+
+}
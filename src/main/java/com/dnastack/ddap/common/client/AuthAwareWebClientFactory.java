@@ -3,5 +3,9 @@ package com.dnastack.ddap.common.client;
 import org.springframework.web.reactive.function.client.WebClient;
 
 public interface AuthAwareWebClientFactory {
-    WebClient getWebClient(String realm, String refreshToken, OAuthFilter.Audience audience);
+    /**
+     * Returns the shared client for the given upstream. Token refresh is requested per call by adding
+     * {@link OAuthFilter#refreshAttributes(String, String, OAuthFilter.Audience)} to the request attributes.
+     */
+    WebClient getWebClient(String upstreamId);
 }
@@ -0,0 +1,56 @@
+package com.dnastack.ddap.common.client;
+
+import lombok.Value;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Outcome of fetching several items at once: the items that could be fetched, keyed by id, and the error of each
+ * item that could not. Items the upstream returned nothing for are in neither map.
+ */
+@Value
+public class BulkResult<T> {
+
+    Map<String, T> values;
+    Map<String, Throwable> errors;
+
+    /**
+     * Fetches every distinct id with at most {@code concurrency} fetches in flight. A failing fetch is recorded in
+     * {@link #getErrors()} and does not affect the others.
+     *
+     * @param concurrency maximum number of fetches in flight. Must be positive.
+     */
+    public static <T> Mono<BulkResult<T>> fetch(Collection<String> ids,
+                                                int concurrency,
+                                                Function<String, Mono<T>> fetch) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        return Flux.fromIterable(new LinkedHashSet<>(ids))
+                   .flatMap(id -> fetch.apply(id)
+                                       .map(value -> new Item<T>(id, value, null))
+                                       .onErrorResume(e -> Mono.just(new Item<>(id, null, e))),
+                            concurrency)
+                   .collect(() -> new BulkResult<T>(new LinkedHashMap<>(), new LinkedHashMap<>()), (result, item) -> {
+                       if (item.getError() == null) {
+                           result.getValues().put(item.getId(), item.getValue());
+                       } else {
+                           result.getErrors().put(item.getId(), item.getError());
+                       }
+                   });
+    }
+
+    @Value
+    private static class Item<T> {
+        String id;
+        T value;
+        Throwable error;
+    }
+
+}
@@ -0,0 +1,472 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.catalog.CompactFlatViews;
+import com.dnastack.ddap.common.catalog.OffHeapMessageMap;
+import com.dnastack.ddap.common.config.CatalogCacheProperties;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.protobuf.Message;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import dam.v1.DamService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caches the resource catalog of one DAM per realm: {@link #getResources}, {@link #getResource} and
+ * {@link #getFlattenedViews}. Bulk resource fetches are answered from the cached resource list. Other calls are passed
+ * through unchanged.
+ * <p>
+ * Entries are weighed by their serialized size, or their estimated heap size for flattened views, and evicted once
+ * the DAM's cache exceeds {@link CatalogCacheProperties#getMaxWeight()}. Entries older than
+ * {@link CatalogCacheProperties#getTtl()} are still served immediately, while a single background refresh replaces
+ * them. A failed refresh keeps the stale entry until {@link CatalogCacheProperties#getMaxStale()}. Concurrent misses
+ * for the same entry share one load.
+ * <p>
+ * Refreshes are conditional requests carrying the validators of the cached response (see
+ * {@link ReactiveDamClient#getResources(String, Revalidated.Validators)}). When the DAM reports the catalog unchanged,
+ * the cached value is kept as the same instance, so that callers can tell it is unchanged by identity and skip
+ * processing it again.
+ * <p>
+ * Flattened views are kept as {@link CompactFlatViews}, which share repeated strings and maps and materialise views
+ * only when they are read. With {@link CatalogCacheProperties#isOffHeap()}, resources and flattened views are instead
+ * kept serialized in direct memory as {@link OffHeapMessageMap}s. The approximate heap cost per view of the parsed
+ * and of the compact form is published as {@code ddap.dam.catalog.view.bytes}, tagged with the realm and
+ * {@code format} of {@code protobuf} or {@code compact}.
+ * <p>
+ * With {@link CatalogCacheProperties#getSnapshotDirectory()}, the cache is saved to a {@link CatalogSnapshot}
+ * whenever it changed and restored from it on startup. Restored entries are served right away and each is
+ * revalidated against the DAM on its first use, so that a restart does not reload the whole catalog at once. Restored
+ * entries expire {@link CatalogCacheProperties#getMaxStale()} after the snapshot was written, not after the restart,
+ * and the cache is saved a last time when the client is destroyed. The time
+ * from JVM start until the first catalog is served is published as {@code ddap.dam.catalog.first.served}, tagged with
+ * {@code source} of {@code snapshot} or {@code upstream}.
+ * <p>
+ * Publishes the standard cache metrics ({@code cache.gets}, {@code cache.load.duration}, ...) under the cache name
+ * {@code ddap.dam.catalog} and the cache's weight in bytes as {@code ddap.dam.catalog.weight}, all tagged with the DAM.
+ * Cached maps are shared by all callers and must not be modified.
+ */
+@Slf4j
+public class CachingReactiveDamClient implements ReactiveDamClient, DisposableBean {
+
+    private static final String CACHE_NAME = "ddap.dam.catalog";
+
+    private final String damId;
+    private final boolean offHeap;
+    private final ReactiveDamClient delegate;
+    private final AsyncLoadingCache<Key, Cached> cache;
+    private final ConcurrentMap<List<String>, AtomicLong> bytesPerView = new ConcurrentHashMap<>();
+    private final Set<Key> restored = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final AtomicBoolean served = new AtomicBoolean();
+    private final Path snapshotFile;
+    private final Disposable snapshotWriter;
+
+    /**
+     * @param damId      the key of this DAM in the {@code dams} configuration map
+     * @param properties cache settings of the DAM
+     * @param delegate   the client making the actual calls
+     */
+    public CachingReactiveDamClient(String damId, CatalogCacheProperties properties, ReactiveDamClient delegate) {
+        this.damId = damId;
+        this.offHeap = properties.isOffHeap();
+        this.delegate = delegate;
+        this.snapshotFile = properties.getSnapshotDirectory() == null
+                            ? null
+                            : Paths.get(properties.getSnapshotDirectory(),
+                                        "dam-" + damId.replaceAll("[^A-Za-z0-9._-]", "_") + ".catalog");
+        final Duration maxStale = properties.getMaxStale().compareTo(properties.getTtl()) > 0
+                                  ? properties.getMaxStale()
+                                  : properties.getTtl();
+        this.cache = Caffeine.newBuilder()
+                             .maximumWeight(properties.getMaxWeight())
+                             .weigher((Key key, Cached cached) -> weigh(cached.getValue()))
+                             .refreshAfterWrite(properties.getTtl())
+                             .expireAfter(new Expiry<Key, Cached>() {
+                                 @Override
+                                 public long expireAfterCreate(Key key, Cached cached, long currentTime) {
+                                     return Math.max(0, maxStale.minus(cached.getAge()).toNanos());
+                                 }
+
+                                 @Override
+                                 public long expireAfterUpdate(Key key, Cached cached, long currentTime, long currentDuration) {
+                                     return expireAfterCreate(key, cached, currentTime);
+                                 }
+
+                                 @Override
+                                 public long expireAfterRead(Key key, Cached cached, long currentTime, long currentDuration) {
+                                     return currentDuration;
+                                 }
+                             })
+                             .recordStats()
+                             .buildAsync(new AsyncCacheLoader<Key, Cached>() {
+                                 @Override
+                                 public CompletableFuture<Cached> asyncLoad(Key key, Executor executor) {
+                                     return load(key, null);
+                                 }
+
+                                 @Override
+                                 public CompletableFuture<Cached> asyncReload(Key key, Cached previous, Executor executor) {
+                                     return load(key, previous);
+                                 }
+                             });
+
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache.synchronous(), CACHE_NAME, "dam", damId);
+        Gauge.builder(CACHE_NAME + ".weight", cache, c -> c.synchronous()
+                                                           .policy()
+                                                           .eviction()
+                                                           .map(eviction -> eviction.weightedSize().orElse(0))
+                                                           .orElse(0L))
+             .description("Serialized size of the cached catalog entries")
+             .baseUnit("bytes")
+             .tag("dam", damId)
+             .register(Metrics.globalRegistry);
+
+        if (snapshotFile != null) {
+            restoreSnapshot(maxStale);
+            snapshotWriter = Flux.interval(properties.getSnapshotInterval(), Schedulers.boundedElastic())
+                                 .subscribe(tick -> writeSnapshot());
+        } else {
+            snapshotWriter = null;
+        }
+    }
+
+    /**
+     * Stops saving snapshots, then saves the cache if it changed since the last snapshot.
+     */
+    @Override
+    public void destroy() {
+        if (snapshotWriter != null) {
+            snapshotWriter.dispose();
+            writeSnapshot();
+        }
+    }
+
+    @Override
+    public Mono<DamService.GetInfoResponse> getDamInfo() {
+        return delegate.getDamInfo();
+    }
+
+    @Override
+    public Mono<Map<String, DamService.Resource>> getResources(String realm) {
+        return get(new Key(Operation.RESOURCES, realm, null));
+    }
+
+    @Override
+    public Mono<DamService.Resource> getResource(String realm, String resourceId) {
+        return get(new Key(Operation.RESOURCE, realm, resourceId));
+    }
+
+    /**
+     * Picks the resources out of the realm's cached resource list, fetching only those missing from it one by one.
+     */
+    @Override
+    public Mono<BulkResult<DamService.Resource>> getResources(String realm,
+                                                              Collection<String> resourceIds,
+                                                              int concurrency) {
+        return getResources(realm)
+            .onErrorResume(e -> {
+                log.warn("Could not list resources of DAM {} in realm {}, fetching {} resources one by one: {}",
+                         damId, realm, resourceIds.size(), e.toString());
+                return Mono.just(Map.of());
+            })
+            .flatMap(resources -> BulkResult.fetch(resourceIds, concurrency, resourceId -> {
+                final DamService.Resource resource = resources.get(resourceId);
+                return resource != null ? Mono.just(resource) : getResource(realm, resourceId);
+            }));
+    }
+
+    @Override
+    public Mono<Map<String, DamService.View>> getResourceViews(String realm,
+                                                               String resourceId,
+                                                               String damToken,
+                                                               String refreshToken) {
+        return delegate.getResourceViews(realm, resourceId, damToken, refreshToken);
+    }
+
+    @Override
+    public Mono<Map<String, DamService.GetFlatViewsResponse.FlatView>> getFlattenedViews(String realm) {
+        return get(new Key(Operation.FLAT_VIEWS, realm, null));
+    }
+
+    /**
+     * Streams the cached views in path order. Cached views are materialised one at a time as they are emitted.
+     */
+    @Override
+    public Flux<DamService.GetFlatViewsResponse.FlatView> streamFlattenedViews(String realm) {
+        return getFlattenedViews(realm).flatMapIterable(Map::values);
+    }
+
+    @Override
+    public Mono<DamService.ResourceResults> checkoutCart(String cartToken) {
+        return delegate.checkoutCart(cartToken);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> get(Key key) {
+        return Mono.defer(() -> {
+            final boolean fromSnapshot = restored.remove(key);
+            if (fromSnapshot) {
+                // Served as is, while revalidated in the background
+                cache.synchronous().refresh(key);
+            }
+            return Mono.fromFuture(cache.get(key))
+                       .map(cached -> (T) cached.getValue())
+                       .doOnNext(value -> recordFirstServed(fromSnapshot));
+        });
+    }
+
+    /*
+     * Loads an entry, or refreshes the given previous one with a conditional request.
+     */
+    private CompletableFuture<Cached> load(Key key, Cached previous) {
+        final Revalidated.Validators validators = previous == null ? null : previous.getValidators();
+        final Mono<? extends Revalidated<?>> result;
+        switch (key.getOperation()) {
+            case RESOURCES:
+                result = delegate.getResources(key.getRealm(), validators);
+                break;
+            case RESOURCE:
+                result = delegate.getResource(key.getRealm(), key.getResourceId(), validators);
+                break;
+            case FLAT_VIEWS:
+                result = delegate.getFlattenedViews(key.getRealm(), validators);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + key.getOperation());
+        }
+        return result.map(revalidated -> {
+                         if (revalidated.isUnchanged() && previous != null) {
+                             // Not encoded again, and the same instance tells callers the catalog is unchanged
+                             return new Cached(previous.getValue(), revalidated.getValidators(), Duration.ZERO);
+                         }
+                         changed.set(true);
+                         return new Cached(toCached(key, revalidated.getValue()), revalidated.getValidators(), Duration.ZERO);
+                     })
+                     .toFuture();
+    }
+
+    /**
+     * @return the form in which a loaded value is kept in the cache. Only called for values that changed: unchanged
+     * ones keep their cached form, see {@link #load}.
+     */
+    @SuppressWarnings("unchecked")
+    private Object toCached(Key key, Object value) {
+        switch (key.getOperation()) {
+            case RESOURCES:
+                return offHeap
+                       ? offHeap(key,
+                                 (Map<String, DamService.Resource>) value,
+                                 DamService.Resource.getDefaultInstance(),
+                                 Function.identity())
+                       : value;
+            case FLAT_VIEWS:
+                final Map<String, DamService.GetFlatViewsResponse.FlatView> views = (Map<String, DamService.GetFlatViewsResponse.FlatView>) value;
+                return offHeap
+                       ? offHeap(key,
+                                 views,
+                                 DamService.GetFlatViewsResponse.FlatView.getDefaultInstance(),
+                                 onHeap -> compact(key, onHeap))
+                       : compact(key, views);
+            default:
+                return value;
+        }
+    }
+
+    private CompactFlatViews compact(Key key, Map<String, DamService.GetFlatViewsResponse.FlatView> views) {
+        final CompactFlatViews compact = CompactFlatViews.of(views);
+        if (compact.size() > 0) {
+            bytesPerView(key.getRealm(), "protobuf").set(compact.getSourceFootprint() / compact.size());
+            bytesPerView(key.getRealm(), "compact").set(compact.getFootprint() / compact.size());
+        }
+        return compact;
+    }
+
+    /**
+     * @param fallback how to keep the entries on the heap if there is not enough direct memory
+     * @return the entries stored off-heap, or kept by {@code fallback}
+     */
+    private <V extends Message> Map<String, V> offHeap(Key key,
+                                                       Map<String, V> entries,
+                                                       V defaultInstance,
+                                                       Function<Map<String, V>, ? extends Map<String, V>> fallback) {
+        try {
+            return OffHeapMessageMap.of(entries, defaultInstance);
+        } catch (OutOfMemoryError e) {
+            log.warn("Not enough direct memory to store {} catalog of DAM {} in realm {} off-heap: {}",
+                     key.getOperation(), damId, key.getRealm(), e.getMessage());
+            return fallback.apply(entries);
+        }
+    }
+
+    private AtomicLong bytesPerView(String realm, String format) {
+        return bytesPerView.computeIfAbsent(List.of(realm, format), k -> {
+            final AtomicLong bytes = new AtomicLong();
+            Gauge.builder(CACHE_NAME + ".view.bytes", bytes, AtomicLong::get)
+                 .description("Approximate heap used per cached flat view")
+                 .baseUnit("bytes")
+                 .tags("dam", damId, "realm", realm, "format", format)
+                 .register(Metrics.globalRegistry);
+            return bytes;
+        });
+    }
+
+    /**
+     * Fills the cache with the entries of the last snapshot, unless it is older than {@code maxStale}. Restored
+     * entries are served as they are and revalidated in the background on first use, with the validators they were
+     * saved with. They carry the age of the snapshot, so that they expire when they would have had the process kept
+     * running.
+     */
+    private void restoreSnapshot(Duration maxStale) {
+        final CatalogSnapshot.Contents snapshot;
+        try {
+            snapshot = CatalogSnapshot.read(snapshotFile, CachingReactiveDamClient::snapshotParser);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable catalog snapshot {} of DAM {}: {}", snapshotFile, damId, e.toString());
+            return;
+        }
+        if (snapshot == null) {
+            return;
+        }
+        final Duration age = Duration.between(snapshot.getWrittenAt(), Instant.now());
+        if (age.compareTo(maxStale) >= 0) {
+            log.info("Ignoring catalog snapshot {} of DAM {} written at {}", snapshotFile, damId, snapshot.getWrittenAt());
+            return;
+        }
+        for (CatalogSnapshot.Entry entry : snapshot.getEntries()) {
+            final Key key = new Key(Operation.valueOf(entry.getOperation()), entry.getRealm(), entry.getResourceId());
+            final Object value = entry.getMap() != null ? entry.getMap() : entry.getMessage();
+            final Duration entryAge = age.isNegative() ? Duration.ZERO : age;
+            final Cached cached = new Cached(toCached(key, value), entry.getValidators(), entryAge);
+            cache.put(key, CompletableFuture.completedFuture(cached));
+            restored.add(key);
+        }
+        log.info("Restored {} catalog entries of DAM {} from snapshot written at {}",
+                 snapshot.getEntries().size(), damId, snapshot.getWrittenAt());
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void writeSnapshot() {
+        if (!changed.getAndSet(false)) {
+            return;
+        }
+        final List<CatalogSnapshot.Entry> entries = new ArrayList<>();
+        cache.synchronous().asMap().forEach((key, cached) -> {
+            final Object value = cached.getValue();
+            // Maps are written entry by entry from their cached form, not copied into one response message
+            entries.add(new CatalogSnapshot.Entry(key.getOperation().name(),
+                                                  key.getRealm(),
+                                                  key.getResourceId(),
+                                                  cached.getValidators(),
+                                                  value instanceof Map ? null : (Message) value,
+                                                  value instanceof Map ? (Map<String, ? extends Message>) value : null));
+        });
+        try {
+            CatalogSnapshot.write(snapshotFile, Instant.now(), entries);
+        } catch (IOException | RuntimeException e) {
+            changed.set(true);
+            log.warn("Could not write catalog snapshot {} of DAM {}: {}", snapshotFile, damId, e.toString());
+        }
+    }
+
+    private static Parser<? extends Message> snapshotParser(String operation) {
+        switch (operation) {
+            case "RESOURCES":
+            case "RESOURCE":
+                return DamService.Resource.parser();
+            case "FLAT_VIEWS":
+                return DamService.GetFlatViewsResponse.FlatView.parser();
+            default:
+                return null;
+        }
+    }
+
+    private void recordFirstServed(boolean fromSnapshot) {
+        if (served.compareAndSet(false, true)) {
+            Timer.builder(CACHE_NAME + ".first.served")
+                 .description("Time from JVM start until the first catalog of the DAM was served")
+                 .tags("dam", damId, "source", fromSnapshot ? "snapshot" : "upstream")
+                 .register(Metrics.globalRegistry)
+                 .record(ManagementFactory.getRuntimeMXBean().getUptime(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static int weigh(Object value) {
+        long weight = 0;
+        if (value instanceof CompactFlatViews) {
+            weight = ((CompactFlatViews) value).getFootprint();
+        } else if (value instanceof OffHeapMessageMap) {
+            weight = ((OffHeapMessageMap<?>) value).getOffHeapSize() + ((OffHeapMessageMap<?>) value).getOnHeapSize();
+        } else if (value instanceof MessageLite) {
+            weight = ((MessageLite) value).getSerializedSize();
+        } else if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                weight += entry.getKey().toString().length();
+                if (entry.getValue() instanceof MessageLite) {
+                    weight += ((MessageLite) entry.getValue()).getSerializedSize();
+                }
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, weight);
+    }
+
+    private enum Operation {
+        RESOURCES, RESOURCE, FLAT_VIEWS
+    }
+
+    @Value
+    private static class Cached {
+        /**
+         * The value in the form it is kept in, see {@link #toCached}.
+         */
+        Object value;
+        /**
+         * Validators of the response the value was loaded from, or null if they are not known.
+         */
+        Revalidated.Validators validators;
+        /**
+         * How old the value already was when it was cached: zero if it was just loaded, the age of the snapshot if
+         * it was restored from one. Counts towards {@link CatalogCacheProperties#getMaxStale()}.
+         */
+        Duration age;
+    }
+
+    @Value
+    private static class Key {
+        Operation operation;
+        String realm;
+        String resourceId;
+    }
+
+}
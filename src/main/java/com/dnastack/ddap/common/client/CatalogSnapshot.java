@@ -0,0 +1,184 @@
+package com.dnastack.ddap.common.client;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Versioned file holding a copy of a DAM's cached catalog as binary protobuf, so that it can be served right after a
+ * restart. Files are replaced atomically, so a reader never sees a partly written snapshot, and read through a
+ * memory mapping, so entries are parsed straight from the page cache.
+ * <p>
+ * Layout: magic number, format version, time written, entry count, then per entry its operation, realm, resource id
+ * (empty if none), the ETag, Last-Modified and content hash it was loaded with (empty if unknown) and its kind. A
+ * message entry continues with the length-delimited message. A map entry continues with its size, then the key and
+ * length-delimited message of each map entry, so that maps are written without building a message holding all of
+ * them.
+ */
+class CatalogSnapshot {
+
+    private static final int MAGIC = 0x44444350;
+    private static final int VERSION = 2;
+    private static final int MESSAGE = 0;
+    private static final int MAP = 1;
+
+    private CatalogSnapshot() {
+    }
+
+    static void write(Path file, Instant writtenAt, List<Entry> entries) throws IOException {
+        Files.createDirectories(file.getParent());
+        final Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream stream = Files.newOutputStream(temporary)) {
+                final CodedOutputStream output = CodedOutputStream.newInstance(stream);
+                output.writeFixed32NoTag(MAGIC);
+                output.writeUInt32NoTag(VERSION);
+                output.writeInt64NoTag(writtenAt.toEpochMilli());
+                output.writeUInt32NoTag(entries.size());
+                for (Entry entry : entries) {
+                    output.writeStringNoTag(entry.getOperation());
+                    output.writeStringNoTag(entry.getRealm());
+                    writeOptionalString(output, entry.getResourceId());
+                    final Revalidated.Validators validators = entry.getValidators();
+                    writeOptionalString(output, validators == null ? null : validators.getEtag());
+                    writeOptionalString(output, validators == null ? null : validators.getLastModified());
+                    writeOptionalString(output, validators == null ? null : validators.getContentHash());
+                    if (entry.getMap() == null) {
+                        output.writeUInt32NoTag(MESSAGE);
+                        writeMessage(output, entry.getMessage());
+                    } else {
+                        output.writeUInt32NoTag(MAP);
+                        output.writeUInt32NoTag(entry.getMap().size());
+                        // Cached maps materialise their messages as they are iterated, one at a time
+                        for (Map.Entry<String, ? extends Message> mapEntry : entry.getMap().entrySet()) {
+                            output.writeStringNoTag(mapEntry.getKey());
+                            writeMessage(output, mapEntry.getValue());
+                        }
+                    }
+                }
+                output.flush();
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @param parsers the parser of the messages, or map values, stored for each operation
+     * @return the snapshot in the given file, or null if there is none
+     * @throws IOException if the file cannot be read, was written in another format version, or is corrupt
+     */
+    static Contents read(Path file, Function<String, Parser<? extends Message>> parsers) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        final MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        final CodedInputStream input = CodedInputStream.newInstance(mapped);
+        input.setSizeLimit(Integer.MAX_VALUE);
+        if (input.readFixed32() != MAGIC) {
+            throw new IOException("Not a catalog snapshot: " + file);
+        }
+        final int version = input.readUInt32();
+        if (version != VERSION) {
+            throw new IOException("Unsupported catalog snapshot version " + version + ": " + file);
+        }
+        final Instant writtenAt = Instant.ofEpochMilli(input.readInt64());
+        final int count = input.readUInt32();
+        final List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final String operation = input.readString();
+            final String realm = input.readString();
+            final String resourceId = readOptionalString(input);
+            final String etag = readOptionalString(input);
+            final String lastModified = readOptionalString(input);
+            final String contentHash = readOptionalString(input);
+            final Revalidated.Validators validators = etag == null && lastModified == null && contentHash == null
+                                                      ? null
+                                                      : new Revalidated.Validators(etag, lastModified, contentHash);
+            final Parser<? extends Message> parser = parsers.apply(operation);
+            if (parser == null) {
+                throw new IOException("Unknown operation " + operation + " in catalog snapshot: " + file);
+            }
+            final int kind = input.readUInt32();
+            if (kind == MESSAGE) {
+                entries.add(new Entry(operation, realm, resourceId, validators, readMessage(input, parser), null));
+            } else if (kind == MAP) {
+                final int size = input.readUInt32();
+                final Map<String, Message> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+                for (int j = 0; j < size; j++) {
+                    map.put(input.readString(), readMessage(input, parser));
+                }
+                entries.add(new Entry(operation, realm, resourceId, validators, null, map));
+            } else {
+                throw new IOException("Unknown entry kind " + kind + " in catalog snapshot: " + file);
+            }
+        }
+        return new Contents(writtenAt, entries);
+    }
+
+    private static void writeOptionalString(CodedOutputStream output, String value) throws IOException {
+        output.writeStringNoTag(value == null ? "" : value);
+    }
+
+    private static String readOptionalString(CodedInputStream input) throws IOException {
+        final String value = input.readString();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void writeMessage(CodedOutputStream output, Message message) throws IOException {
+        output.writeUInt32NoTag(message.getSerializedSize());
+        message.writeTo(output);
+    }
+
+    private static Message readMessage(CodedInputStream input, Parser<? extends Message> parser) throws IOException {
+        final int limit = input.pushLimit(input.readRawVarint32());
+        final Message message = parser.parsePartialFrom(input);
+        input.checkLastTagWas(0);
+        input.popLimit(limit);
+        return message;
+    }
+
+    /**
+     * One cached catalog entry: either a {@link #message} or a {@link #map} of messages.
+     */
+    @Value
+    static class Entry {
+        String operation;
+        String realm;
+        String resourceId;
+        /**
+         * Validators of the response the entry was loaded from, or null if they are not known.
+         */
+        Revalidated.Validators validators;
+        Message message;
+        Map<String, ? extends Message> map;
+    }
+
+    @Value
+    static class Contents {
+        Instant writtenAt;
+        List<Entry> entries;
+    }
+
+}
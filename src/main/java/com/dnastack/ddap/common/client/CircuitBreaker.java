@@ -0,0 +1,237 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.config.CircuitBreakerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker shared by everything that calls one upstream (its client from {@link WebClientFactory} and its
+ * gateway routes).
+ * <p>
+ * While closed, call outcomes are counted per {@link CircuitBreakerProperties#getWindow() window}, and the circuit
+ * opens once the share of failed or slow calls reaches the threshold. While open, calls are rejected without reaching
+ * the upstream. After {@link CircuitBreakerProperties#getOpenDuration() openDuration} the circuit becomes half-open and
+ * lets a few probes through: it closes once they all succeed, and opens again as soon as one fails.
+ * <p>
+ * State is kept in immutable snapshots swapped with compare-and-set, so no call ever blocks on the breaker.
+ * Transitions are logged and counted as {@code ddap.client.circuit.transitions}, the current state is published as
+ * {@code ddap.client.circuit.state} (0 closed, 1 open, 2 half-open) and rejected calls are counted as
+ * {@code ddap.client.circuit.rejected}, all tagged with the upstream.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    private final String upstreamId;
+    private final CircuitBreakerProperties properties;
+    private final AtomicReference<Status> status = new AtomicReference<>(new Status(State.CLOSED, 0));
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window(System.nanoTime()));
+    private final Counter rejected;
+
+    CircuitBreaker(String upstreamId, CircuitBreakerProperties properties) {
+        this.upstreamId = upstreamId;
+        this.properties = properties;
+        this.rejected = Counter.builder("ddap.client.circuit.rejected")
+                               .description("Calls failed without reaching the upstream because its circuit was open")
+                               .tag("upstream", upstreamId)
+                               .register(Metrics.globalRegistry);
+        Gauge.builder("ddap.client.circuit.state", status, value -> value.get().state.ordinal())
+             .description("State of the upstream's circuit breaker: 0 closed, 1 open, 2 half-open")
+             .tag("upstream", upstreamId)
+             .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * @param upstreamId identifies the upstream. Must not be null.
+     * @param properties settings for the breaker. May be null, in which case defaults are used.
+     * @return the breaker shared by all callers of the given upstream. Never null.
+     */
+    public static CircuitBreaker forUpstream(String upstreamId, CircuitBreakerProperties properties) {
+        return BREAKERS.computeIfAbsent(upstreamId, id -> new CircuitBreaker(id, properties == null
+                                                                                 ? new CircuitBreakerProperties()
+                                                                                 : properties));
+    }
+
+    /**
+     * @return the breaker already registered for the given upstream through {@link #forUpstream}. Never null.
+     * @throws IllegalStateException if no breaker was registered for the upstream
+     */
+    public static CircuitBreaker get(String upstreamId) {
+        final CircuitBreaker breaker = BREAKERS.get(upstreamId);
+        if (breaker == null) {
+            throw new IllegalStateException("No circuit breaker registered for upstream " + upstreamId);
+        }
+        return breaker;
+    }
+
+    /**
+     * @return all breakers created so far, keyed by upstream id. Never null.
+     */
+    public static Map<String, CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(BREAKERS);
+    }
+
+    public String getUpstreamId() {
+        return upstreamId;
+    }
+
+    public State getState() {
+        return status.get().state;
+    }
+
+    public Instant getStateSince() {
+        return status.get().since;
+    }
+
+    /**
+     * @return the share of failed calls in the current window, between 0 and 1
+     */
+    public double getFailureRate() {
+        final Window current = window.get();
+        final int calls = current.calls.get();
+        return calls == 0 ? 0 : (double) current.failures.get() / calls;
+    }
+
+    /**
+     * @return true if a call may be sent to the upstream. Every permitted call must report its outcome through
+     * {@link #onResult(Duration, boolean)}, unless it is cancelled.
+     */
+    public boolean tryAcquirePermission() {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        while (true) {
+            final Status current = status.get();
+            switch (current.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (current.elapsed() < properties.getOpenDuration().toNanos()) {
+                        rejected.increment();
+                        return false;
+                    }
+                    transition(current, State.HALF_OPEN);
+                    break;
+                case HALF_OPEN:
+                    if (current.tryAcquireProbe()) {
+                        return true;
+                    }
+                    // Probes that never reported back (cancelled calls) must not keep the circuit half-open forever
+                    if (current.elapsed() < properties.getOpenDuration().toNanos()) {
+                        rejected.increment();
+                        return false;
+                    }
+                    transition(current, State.HALF_OPEN);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @param elapsed how long the call took
+     * @param failed  true if the call ended in an error or a server error response
+     */
+    public void onResult(Duration elapsed, boolean failed) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        final boolean failure = failed || elapsed.compareTo(properties.getSlowCallDuration()) > 0;
+        final Status current = status.get();
+        switch (current.state) {
+            case CLOSED:
+                final Window currentWindow = currentWindow();
+                if (failure) {
+                    currentWindow.failures.incrementAndGet();
+                }
+                final int calls = currentWindow.calls.incrementAndGet();
+                if (failure
+                    && calls >= properties.getMinimumCalls()
+                    && (double) currentWindow.failures.get() / calls >= properties.getFailureRateThreshold()) {
+                    transition(current, State.OPEN);
+                }
+                break;
+            case HALF_OPEN:
+                if (failure) {
+                    transition(current, State.OPEN);
+                } else if (current.probeSuccesses.incrementAndGet() >= properties.getHalfOpenProbes()) {
+                    transition(current, State.CLOSED);
+                }
+                break;
+            case OPEN:
+                // Calls permitted before the circuit opened carry no new information
+                break;
+        }
+    }
+
+    private void transition(Status from, State to) {
+        final Status next = new Status(to, to == State.HALF_OPEN ? properties.getHalfOpenProbes() : 0);
+        if (status.compareAndSet(from, next)) {
+            if (to == State.CLOSED) {
+                window.set(new Window(System.nanoTime()));
+            }
+            if (from.state != to) {
+                log.info("Circuit breaker for upstream [{}] changed from {} to {}", upstreamId, from.state, to);
+                Metrics.counter("ddap.client.circuit.transitions", "upstream", upstreamId, "state", to.name())
+                       .increment();
+            }
+        }
+    }
+
+    private Window currentWindow() {
+        final Window current = window.get();
+        final long now = System.nanoTime();
+        if (now - current.start >= properties.getWindow().toNanos()) {
+            window.compareAndSet(current, new Window(now));
+            return window.get();
+        }
+        return current;
+    }
+
+    private static class Status {
+        private final State state;
+        private final long sinceNanos = System.nanoTime();
+        private final Instant since = Instant.now();
+        private final AtomicInteger probePermits;
+        private final AtomicInteger probeSuccesses = new AtomicInteger();
+
+        private Status(State state, int probePermits) {
+            this.state = state;
+            this.probePermits = new AtomicInteger(probePermits);
+        }
+
+        private long elapsed() {
+            return System.nanoTime() - sinceNanos;
+        }
+
+        private boolean tryAcquireProbe() {
+            return probePermits.getAndUpdate(permits -> permits > 0 ? permits - 1 : 0) > 0;
+        }
+    }
+
+    private static class Window {
+        private final long start;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private Window(long start) {
+            this.start = start;
+        }
+    }
+
+}
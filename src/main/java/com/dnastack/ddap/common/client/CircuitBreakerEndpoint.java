@@ -0,0 +1,40 @@
+package com.dnastack.ddap.common.client;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exposes the state of every upstream's {@link CircuitBreaker} as {@code /actuator/circuitbreakers}. Needs to be
+ * included in {@code management.endpoints.web.exposure.include} to be reachable over HTTP.
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakerEndpoint {
+
+    @ReadOperation
+    public Map<String, CircuitBreakerState> circuitBreakers() {
+        final Map<String, CircuitBreakerState> states = new TreeMap<>();
+        CircuitBreaker.getCircuitBreakers()
+                      .forEach((upstreamId, circuitBreaker) -> states.put(upstreamId, new CircuitBreakerState(
+                          circuitBreaker.getState(),
+                          circuitBreaker.getStateSince(),
+                          circuitBreaker.getFailureRate())));
+        return states;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class CircuitBreakerState {
+        private CircuitBreaker.State state;
+        private Instant since;
+        private double failureRate;
+    }
+
+}
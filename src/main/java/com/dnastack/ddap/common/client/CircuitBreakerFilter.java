@@ -0,0 +1,48 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.exception.ServiceOutage;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static java.lang.String.format;
+
+/**
+ * Fails requests with a {@link ServiceOutage} while the upstream's {@link CircuitBreaker} is open, and reports the
+ * outcome of every other request to it. Installed outside the timeout and retry filters, so that a request counts
+ * once no matter how many attempts it took.
+ */
+public class CircuitBreakerFilter implements ExchangeFilterFunction {
+
+    private final String upstreamId;
+    private final CircuitBreaker circuitBreaker;
+
+    public CircuitBreakerFilter(String upstreamId, CircuitBreaker circuitBreaker) {
+        this.upstreamId = upstreamId;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return Mono.error(new ServiceOutage(format("Upstream [%s] is unavailable: circuit breaker is %s",
+                                                           upstreamId,
+                                                           circuitBreaker.getState())));
+            }
+            final long start = System.nanoTime();
+            return next.exchange(request)
+                       .doOnNext(response -> circuitBreaker.onResult(elapsedSince(start), response.rawStatusCode() >= 500))
+                       .doOnError(ex -> circuitBreaker.onResult(elapsedSince(start), true));
+        });
+    }
+
+    private static Duration elapsedSince(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+}
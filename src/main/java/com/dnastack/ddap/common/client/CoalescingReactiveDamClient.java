@@ -0,0 +1,116 @@
+package com.dnastack.ddap.common.client;
+
+import dam.v1.DamService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares one upstream call among all concurrent callers of the same catalog operation with the same arguments, so
+ * that a burst of identical requests (typically every user of a realm loading the UI at once) costs the DAM one
+ * request and DDAP one parse.
+ * <p>
+ * Calls carrying user tokens ({@link #getResourceViews}), conditional catalog requests (whose answer depends on the
+ * caller's validators), streamed flat views and cart checkouts are passed through unchanged. Coalescing
+ * is counted as {@code ddap.dam.coalescing}, tagged with the DAM, the operation and {@code hit} or {@code miss}.
+ */
+public class CoalescingReactiveDamClient implements ReactiveDamClient {
+
+    private final ReactiveDamClient delegate;
+    private final SingleFlight<List<String>> singleFlight;
+
+    /**
+     * @param damId    the key of this DAM in the {@code dams} configuration map
+     * @param delegate the client making the actual calls
+     */
+    public CoalescingReactiveDamClient(String damId, ReactiveDamClient delegate) {
+        this.delegate = delegate;
+        this.singleFlight = new SingleFlight<>("ddap.dam.coalescing", "dam", damId);
+    }
+
+    @Override
+    public Mono<DamService.GetInfoResponse> getDamInfo() {
+        return singleFlight.execute("damInfo", List.of("damInfo"), delegate::getDamInfo);
+    }
+
+    @Override
+    public Mono<Map<String, DamService.Resource>> getResources(String realm) {
+        return singleFlight.execute("resources", List.of("resources", realm), () -> delegate.getResources(realm));
+    }
+
+    @Override
+    public Mono<DamService.Resource> getResource(String realm, String resourceId) {
+        return singleFlight.execute("resource",
+                                    List.of("resource", realm, resourceId),
+                                    () -> delegate.getResource(realm, resourceId));
+    }
+
+    @Override
+    public Mono<Revalidated<Map<String, DamService.Resource>>> getResources(String realm,
+                                                                           Revalidated.Validators validators) {
+        return delegate.getResources(realm, validators);
+    }
+
+    @Override
+    public Mono<Revalidated<DamService.Resource>> getResource(String realm,
+                                                              String resourceId,
+                                                              Revalidated.Validators validators) {
+        return delegate.getResource(realm, resourceId, validators);
+    }
+
+    /**
+     * Passed through, so that the delegate can answer from its own catalog. The resources it fetches one by one go
+     * through the delegate's {@link #getResource}, which is not coalesced.
+     */
+    @Override
+    public Mono<BulkResult<DamService.Resource>> getResources(String realm,
+                                                              Collection<String> resourceIds,
+                                                              int concurrency) {
+        return delegate.getResources(realm, resourceIds, concurrency);
+    }
+
+    @Override
+    public Mono<Map<String, DamService.View>> getResourceViews(String realm,
+                                                               String resourceId,
+                                                               String damToken,
+                                                               String refreshToken) {
+        return delegate.getResourceViews(realm, resourceId, damToken, refreshToken);
+    }
+
+    @Override
+    public Mono<BulkResult<Map<String, DamService.View>>> getResourceViews(String realm,
+                                                                           Collection<String> resourceIds,
+                                                                           String damToken,
+                                                                           String refreshToken,
+                                                                           int concurrency) {
+        return delegate.getResourceViews(realm, resourceIds, damToken, refreshToken, concurrency);
+    }
+
+    @Override
+    public Mono<Map<String, DamService.GetFlatViewsResponse.FlatView>> getFlattenedViews(String realm) {
+        return singleFlight.execute("flatViews", List.of("flatViews", realm), () -> delegate.getFlattenedViews(realm));
+    }
+
+    @Override
+    public Mono<Revalidated<Map<String, DamService.GetFlatViewsResponse.FlatView>>> getFlattenedViews(String realm,
+                                                                                                     Revalidated.Validators validators) {
+        return delegate.getFlattenedViews(realm, validators);
+    }
+
+    /**
+     * Passed through, so that each caller decodes its own stream.
+     */
+    @Override
+    public Flux<DamService.GetFlatViewsResponse.FlatView> streamFlattenedViews(String realm) {
+        return delegate.streamFlattenedViews(realm);
+    }
+
+    @Override
+    public Mono<DamService.ResourceResults> checkoutCart(String cartToken) {
+        return delegate.checkoutCart(cartToken);
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.dnastack.ddap.common.client;
+
+import dam.v1.DamService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Keeps the info and health of every configured DAM, polling each DAM's info every
+ * {@code ddap.dam-info.refresh-interval}. Callers are answered from memory, so that listing DAMs costs the DAMs
+ * nothing. Polling starts once the application is ready; until the first poll of a DAM completes, {@link #getStatus}
+ * waits for it, starting it if needed.
+ * <p>
+ * A DAM is considered down once {@code ddap.dam-info.failure-threshold} polls in a row failed or missed the
+ * {@code ddap.dam-info.deadline}, and up again after one successful poll. Its last good info is kept meanwhile.
+ * <p>
+ * Poll times are recorded as {@code ddap.dam.info}, tagged with the DAM and {@code outcome} of {@code success},
+ * {@code failure} or {@code timeout}, and availability as the gauge {@code ddap.dam.available} (1 or 0).
+ */
+@Slf4j
+@Component
+public class DamRegistry implements DisposableBean {
+
+    private final Map<String, ReactiveDamClient> damClients;
+    private final Duration deadline;
+    private final int failureThreshold;
+    private final ConcurrentMap<String, DamStatus> statuses = new ConcurrentHashMap<>();
+    private final Duration refreshInterval;
+    private final Map<String, Mono<DamStatus>> firstPolls;
+    private volatile Disposable polling;
+
+    @Autowired
+    public DamRegistry(Map<String, ReactiveDamClient> damClients,
+                       @Value("${ddap.dam-info.refresh-interval:PT30S}") Duration refreshInterval,
+                       @Value("${ddap.dam-info.deadline:PT5S}") Duration deadline,
+                       @Value("${ddap.dam-info.failure-threshold:2}") int failureThreshold) {
+        this.damClients = damClients;
+        this.refreshInterval = refreshInterval;
+        this.deadline = deadline;
+        this.failureThreshold = failureThreshold;
+        this.firstPolls = damClients.keySet()
+                                    .stream()
+                                    .collect(toMap(damId -> damId, damId -> poll(damId).cache()));
+        for (String damId : damClients.keySet()) {
+            Gauge.builder("ddap.dam.available", statuses, all -> isAvailable(damId) ? 1 : 0)
+                 .description("Whether the DAM answered its last polls")
+                 .tag("dam", damId)
+                 .register(Metrics.globalRegistry);
+        }
+    }
+
+    /**
+     * Polls every DAM once, then every {@code ddap.dam-info.refresh-interval} until the registry is destroyed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPolling() {
+        firstPolls.values().forEach(Mono::subscribe);
+        polling = Flux.interval(refreshInterval, refreshInterval)
+                      .onBackpressureDrop()
+                      .concatMap(tick -> Flux.fromIterable(damClients.keySet()).flatMap(this::poll))
+                      .subscribe();
+    }
+
+    /**
+     * @return the ids of all configured DAMs
+     */
+    public Set<String> getDamIds() {
+        return damClients.keySet();
+    }
+
+    /**
+     * @return the last known status of the given DAM, waiting for its first poll if there was none yet
+     * @throws IllegalArgumentException (as error signal) if the DAM is not known
+     */
+    public Mono<DamStatus> getStatus(String damId) {
+        final DamStatus status = statuses.get(damId);
+        if (status != null) {
+            return Mono.just(status);
+        }
+        final Mono<DamStatus> firstPoll = firstPolls.get(damId);
+        return firstPoll == null ? Mono.error(new IllegalArgumentException("Unknown DAM: " + damId)) : firstPoll;
+    }
+
+    /**
+     * @return false only if the given DAM is known to be down. DAMs that were not polled yet are assumed to be up.
+     */
+    public boolean isAvailable(String damId) {
+        final DamStatus status = statuses.get(damId);
+        return status == null || status.isAvailable();
+    }
+
+    @Override
+    public void destroy() {
+        final Disposable polling = this.polling;
+        if (polling != null) {
+            polling.dispose();
+        }
+    }
+
+    private Mono<DamStatus> poll(String damId) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return damClients.get(damId)
+                             .getDamInfo()
+                             .timeout(deadline)
+                             .map(info -> update(damId, info, null, start))
+                             .onErrorResume(e -> Mono.just(update(damId, null, e, start)));
+        });
+    }
+
+    private DamStatus update(String damId, DamService.GetInfoResponse info, Throwable error, long start) {
+        final Duration latency = Duration.ofNanos(System.nanoTime() - start);
+        final String outcome = error == null ? "success" : error instanceof TimeoutException ? "timeout" : "failure";
+        Timer.builder("ddap.dam.info")
+             .description("Time a DAM takes to return its info")
+             .tags("dam", damId, "outcome", outcome)
+             .register(Metrics.globalRegistry)
+             .record(latency.toNanos(), TimeUnit.NANOSECONDS);
+
+        return statuses.compute(damId, (id, previous) -> {
+            if (error == null) {
+                if (previous != null && !previous.isAvailable()) {
+                    log.info("DAM {} is available again", damId);
+                }
+                return new DamStatus(info, true, 0, latency, Instant.now());
+            }
+            final int failures = previous == null ? 1 : previous.getConsecutiveFailures() + 1;
+            final boolean available = failures < failureThreshold;
+            if (!available && (previous == null || previous.isAvailable())) {
+                log.warn("DAM {} is unavailable: {}", damId, error.toString());
+            }
+            return new DamStatus(previous == null ? null : previous.getInfo(),
+                                 available,
+                                 failures,
+                                 latency,
+                                 Instant.now());
+        });
+    }
+
+    @lombok.Value
+    public static class DamStatus {
+        /**
+         * The last info the DAM returned, or null if it never answered.
+         */
+        DamService.GetInfoResponse info;
+        boolean available;
+        int consecutiveFailures;
+        Duration latency;
+        Instant checkedAt;
+    }
+
+}
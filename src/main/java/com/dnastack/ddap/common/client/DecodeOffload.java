@@ -0,0 +1,99 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.config.DecodeProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides per upstream whether a response body is decoded inline, on the Netty event loop that received it, or on a
+ * scheduler shared by all upstreams. The scheduler has one thread per core and a bounded queue. Once the queue is
+ * full, bodies are decoded inline again rather than queued without limit.
+ * <p>
+ * The queue is exported as {@code ddap.client.decode.queue}. The time spent decoding bodies is recorded as
+ * {@code ddap.client.decode}, tagged with the upstream, the wire format and whether the body was decoded
+ * {@code inline} or {@code offloaded}.
+ */
+public class DecodeOffload {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final ConcurrentMap<String, DecodeOffload> OFFLOADS = new ConcurrentHashMap<>();
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+    private static final Scheduler SCHEDULER = Schedulers.fromExecutorService(EXECUTOR, "ddap-decode");
+
+    private final String upstreamId;
+    private final boolean enabled;
+    private final long threshold;
+
+    DecodeOffload(String upstreamId, DecodeProperties properties) {
+        this.upstreamId = upstreamId;
+        this.enabled = properties.isOffloadEnabled();
+        this.threshold = properties.getOffloadThreshold();
+    }
+
+    /**
+     * @param upstreamId identifies the upstream. Must not be null.
+     * @param properties decode settings of the upstream. May be null, in which case defaults are used.
+     * @return the decode settings shared by all calls to the given upstream. Never null.
+     */
+    public static DecodeOffload forUpstream(String upstreamId, DecodeProperties properties) {
+        return OFFLOADS.computeIfAbsent(upstreamId, id -> new DecodeOffload(id, properties == null
+                                                                                  ? new DecodeProperties()
+                                                                                  : properties));
+    }
+
+    /**
+     * @param contentLength length of the body in bytes, or negative if unknown
+     * @return true if the body should be decoded on {@link #getScheduler()}
+     */
+    public boolean shouldOffload(long contentLength) {
+        return enabled && (contentLength < 0 || contentLength > threshold);
+    }
+
+    public static Scheduler getScheduler() {
+        return SCHEDULER;
+    }
+
+    /**
+     * @param format    the wire format of the decoded body
+     * @param offloaded whether the body is decoded on {@link #getScheduler()}
+     */
+    public Timer timer(String format, boolean offloaded) {
+        return Timer.builder("ddap.client.decode")
+                    .description("Time spent decoding upstream response bodies")
+                    .tag("upstream", upstreamId)
+                    .tag("format", format)
+                    .tag("mode", offloaded ? "offloaded" : "inline")
+                    .register(Metrics.globalRegistry);
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, "ddap-decode-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // When saturated, decode on the calling thread rather than fail the request
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                                                   new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                                                                   threadFactory,
+                                                                   new ThreadPoolExecutor.CallerRunsPolicy());
+        Gauge.builder("ddap.client.decode.queue", executor, e -> e.getQueue().size())
+             .description("Response bodies waiting to be decoded off the event loop")
+             .register(Metrics.globalRegistry);
+        return executor;
+    }
+
+}
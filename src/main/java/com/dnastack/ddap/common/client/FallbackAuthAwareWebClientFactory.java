@@ -9,8 +9,8 @@ import org.springframework.web.reactive.function.client.WebClient;
 public class FallbackAuthAwareWebClientFactory implements AuthAwareWebClientFactory {
 
     @Override
-    public WebClient getWebClient(String realm, String refreshToken, OAuthFilter.Audience audience) {
-        return WebClientFactory.getWebClient();
+    public WebClient getWebClient(String upstreamId) {
+        return WebClientFactory.getWebClient(upstreamId);
     }
 
 }
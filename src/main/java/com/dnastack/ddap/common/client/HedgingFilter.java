@@ -0,0 +1,131 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.config.HedgingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.support.TimeoutException;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends GET, HEAD and OPTIONS requests as hedged attempts. The first attempt is sent immediately and, while it is
+ * still in flight, another one is started after every {@link HedgingProperties#getDelay() delay}, or after the
+ * observed {@link HedgingProperties#getDelayPercentile() latency percentile} if configured. The first response
+ * wins and the remaining attempts are cancelled. An attempt that fails does not fail the request as long as another
+ * one may still answer. Additional attempts count as retries against the upstream's {@link RetryBudget} and are not
+ * sent once it is exhausted.
+ * <p>
+ * Publishes {@code ddap.client.hedge.issued} and {@code ddap.client.hedge.won}, tagged with the upstream.
+ */
+@Slf4j
+public class HedgingFilter implements ExchangeFilterFunction {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final HedgingProperties properties;
+    private final AdaptiveTimeouts timeouts;
+    private final RetryBudget retryBudget;
+    private final Counter hedgesIssued;
+    private final Counter hedgesWon;
+
+    /**
+     * @param upstreamId  used to tag the metrics
+     * @param properties  hedging settings for the upstream
+     * @param timeouts    records attempt latency; its maximum timeout bounds every single attempt
+     * @param retryBudget consulted before every additional attempt
+     */
+    public HedgingFilter(String upstreamId, HedgingProperties properties, AdaptiveTimeouts timeouts, RetryBudget retryBudget) {
+        this.properties = properties;
+        this.timeouts = timeouts;
+        this.retryBudget = retryBudget;
+        this.hedgesIssued = Counter.builder("ddap.client.hedge.issued")
+                                   .description("Additional attempts started while an earlier one was in flight")
+                                   .tag("upstream", upstreamId)
+                                   .register(Metrics.globalRegistry);
+        this.hedgesWon = Counter.builder("ddap.client.hedge.won")
+                                .description("Requests answered by an additional attempt rather than the first")
+                                .tag("upstream", upstreamId)
+                                .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        switch (request.method()) {
+            case GET:
+            case HEAD:
+            case OPTIONS:
+                return hedge(request, next);
+            default:
+                return next.exchange(request)
+                           .doOnNext(this::recordSuccess);
+        }
+    }
+
+    private Mono<ClientResponse> hedge(ClientRequest request, ExchangeFunction next) {
+        final int attempts = Math.max(1, Math.min(properties.getMaxAttempts(), MAX_ATTEMPTS));
+        final String operation = WebClientFactory.getOperation(request);
+        final Duration delay = getDelay(operation);
+        final AtomicReference<Throwable> lastError = new AtomicReference<>();
+
+        return Flux.range(0, attempts)
+                   .flatMap(attempt -> {
+                       final Mono<Attempt> exchange = timeouts.timed(operation, timeouts.getMaxTimeout(), next.exchange(request))
+                           .map(response -> new Attempt(attempt, response))
+                           .onErrorResume(ex -> {
+                               log.debug("Attempt {} of {} {} failed", attempt + 1, request.method(), request.url(), ex);
+                               lastError.set(ex);
+                               return Mono.empty();
+                           });
+                       if (attempt == 0) {
+                           return exchange;
+                       }
+                       return Mono.delay(delay.multipliedBy(attempt))
+                                  .filter(ignore -> retryBudget.tryAcquireRetry())
+                                  .doOnNext(ignore -> hedgesIssued.increment())
+                                  .flatMap(ignore -> exchange);
+                   })
+                   .next()
+                   .doOnNext(winner -> {
+                       recordSuccess(winner.getResponse());
+                       if (winner.getIndex() > 0) {
+                           hedgesWon.increment();
+                       }
+                   })
+                   .map(Attempt::getResponse)
+                   .switchIfEmpty(Mono.defer(() -> Mono.error(lastError.get() != null
+                                                              ? lastError.get()
+                                                              : new TimeoutException())))
+                   // Responses of attempts that lost the race still hold a connection
+                   .doOnDiscard(Attempt.class, loser -> loser.getResponse().releaseBody().subscribe());
+    }
+
+    private void recordSuccess(ClientResponse response) {
+        if (response.rawStatusCode() < 500) {
+            retryBudget.recordSuccess();
+        }
+    }
+
+    private Duration getDelay(String operation) {
+        if (properties.getDelayPercentile() == null) {
+            return properties.getDelay();
+        }
+        return timeouts.getObservedLatency(operation, properties.getDelayPercentile())
+                       .orElse(properties.getDelay());
+    }
+
+    @Value
+    private static class Attempt {
+        int index;
+        ClientResponse response;
+    }
+
+}
@@ -1,98 +1,165 @@
 package com.dnastack.ddap.common.client;
 
 import com.dnastack.ddap.common.config.DamProperties;
+import com.google.protobuf.Message;
 import dam.v1.DamService;
 import dam.v1.DamService.ResourceResults;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriTemplate;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
-import java.util.HashMap;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Map;
 
+import static com.dnastack.ddap.common.client.WebClientFactory.OPERATION_ATTRIBUTE;
+import static com.dnastack.ddap.common.client.ProtobufDeserializer.APPLICATION_PROTOBUF;
+import static com.dnastack.ddap.common.client.ProtobufDeserializer.PROTOBUF_OR_JSON;
+import static org.springframework.http.HttpHeaders.ACCEPT;
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+import static org.springframework.http.HttpHeaders.IF_MODIFIED_SINCE;
+import static org.springframework.http.HttpHeaders.LAST_MODIFIED;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
 
 @Slf4j
 public class HttpReactiveDamClient implements ReactiveDamClient {
 
+    private static final UriTemplate RESOURCES_TEMPLATE = new UriTemplate("/dam/v1alpha/{realm}/resources" +
+        "?client_id={clientId}" +
+        "&client_secret={clientSecret}");
+    private static final UriTemplate RESOURCE_TEMPLATE = new UriTemplate("/dam/v1alpha/{realm}/resources/{resourceId}" +
+        "?client_id={clientId}" +
+        "&client_secret={clientSecret}");
+    private static final UriTemplate RESOURCE_VIEWS_TEMPLATE = new UriTemplate("/dam/v1alpha/{realm}/resources/{resourceId}/views" +
+        "?client_id={clientId}" +
+        "&client_secret={clientSecret}");
+    private static final UriTemplate FLAT_VIEWS_TEMPLATE = new UriTemplate("/dam/v1alpha/{realm}/flatViews" +
+        "?client_id={clientId}" +
+        "&client_secret={clientSecret}");
+    private static final UriTemplate CHECKOUT_TEMPLATE = new UriTemplate("/dam/checkout" +
+        "?client_id={clientId}" +
+        "&client_secret={clientSecret}");
+
+    private String upstreamId;
+    private WebClient webClient;
     private URI damBaseUrl;
     private String damClientId;
     private String damClientSecret;
     public URI damUiUrl;
     private AuthAwareWebClientFactory webClientFactory;
 
+    /**
+     * @deprecated registers the client under the authority of the DAM's base URL, which is not the key the gateway
+     * routes and the startup warm-up use for the DAM, so the client gets a pool and breaker of its own. Use
+     * {@link #HttpReactiveDamClient(String, DamProperties, AuthAwareWebClientFactory)} with the DAM's key instead.
+     */
+    @Deprecated
     public HttpReactiveDamClient(DamProperties properties, AuthAwareWebClientFactory webClientFactory) {
-        this(
-                properties.getBaseUrl(),
-                properties.getClientId(),
-                properties.getClientSecret(),
-                URI.create(properties.getUiUrl()),
-                webClientFactory
-        );
+        this(properties.getBaseUrl().getAuthority(), properties, webClientFactory);
     }
 
+    /**
+     * @param damId the key of this DAM in the {@code dams} configuration map, used to share one client and
+     *              connection pool per DAM
+     */
+    public HttpReactiveDamClient(String damId, DamProperties properties, AuthAwareWebClientFactory webClientFactory) {
+        this.upstreamId = WebClientFactory.damUpstream(damId);
+        // Registers the pool settings before any auth-aware client for this DAM is derived from it
+        this.webClient = WebClientFactory.getWebClient(upstreamId, properties);
+        this.damBaseUrl = properties.getBaseUrl();
+        this.damClientId = properties.getClientId();
+        this.damClientSecret = properties.getClientSecret();
+        this.damUiUrl = properties.getUiUrl() == null ? null : URI.create(properties.getUiUrl());
+        this.webClientFactory = webClientFactory;
+    }
+
+    /**
+     * @deprecated registers the client under the authority of the DAM's base URL. See
+     * {@link #HttpReactiveDamClient(DamProperties, AuthAwareWebClientFactory)}.
+     */
+    @Deprecated
     public HttpReactiveDamClient(URI damBaseUrl,
                                  String damClientId,
                                  String damClientSecret,
                                  URI damUiUrl,
                                  AuthAwareWebClientFactory webClientFactory) {
-        this.damBaseUrl = damBaseUrl;
-        this.damClientId = damClientId;
-        this.damClientSecret = damClientSecret;
-        this.damUiUrl = damUiUrl;
-        this.webClientFactory = webClientFactory;
+        this(damBaseUrl.getAuthority(), damBaseUrl, damClientId, damClientSecret, damUiUrl, webClientFactory);
+    }
+
+    /**
+     * Like {@link #HttpReactiveDamClient(String, DamProperties, AuthAwareWebClientFactory)}, with default upstream
+     * settings if the DAM was not registered from its configuration first.
+     */
+    public HttpReactiveDamClient(String damId,
+                                 URI damBaseUrl,
+                                 String damClientId,
+                                 String damClientSecret,
+                                 URI damUiUrl,
+                                 AuthAwareWebClientFactory webClientFactory) {
+        this(damId, damProperties(damBaseUrl, damClientId, damClientSecret, damUiUrl), webClientFactory);
+    }
+
+    private static DamProperties damProperties(URI damBaseUrl, String damClientId, String damClientSecret, URI damUiUrl) {
+        final DamProperties properties = new DamProperties();
+        properties.setBaseUrl(damBaseUrl);
+        properties.setClientId(damClientId);
+        properties.setClientSecret(damClientSecret);
+        properties.setUiUrl(damUiUrl == null ? null : damUiUrl.toString());
+        return properties;
     }
 
     @Override
     public Mono<DamService.GetInfoResponse> getDamInfo() {
-        return WebClientFactory.getWebClient()
+        return webClient
             .get()
             .uri(damBaseUrl.resolve("/dam"))
-            .retrieve()
-            .bodyToMono(String.class)
-            .flatMap(json -> ProtobufDeserializer.fromJsonToMono(json, DamService.GetInfoResponse.getDefaultInstance()));
+            .attribute(OPERATION_ATTRIBUTE, "damInfo")
+            .header(ACCEPT, PROTOBUF_OR_JSON)
+            .exchange()
+            .flatMap(response -> ProtobufDeserializer.fromResponse(upstreamId, response, DamService.GetInfoResponse.getDefaultInstance()));
     }
 
     @Override
     public Mono<Map<String, DamService.Resource>> getResources(String realm) {
-        final UriTemplate template = new UriTemplate("/dam/v1alpha/{realm}/resources" +
-            "?client_id={clientId}" +
-            "&client_secret={clientSecret}");
-        final Map<String, Object> variables = new HashMap<>();
-        variables.put("realm", realm);
-        variables.put("clientId", damClientId);
-        variables.put("clientSecret", damClientSecret);
-
-        return WebClientFactory.getWebClient()
-            .get()
-            .uri(damBaseUrl.resolve(template.expand(variables)))
-            .retrieve()
-            .bodyToMono(String.class)
-            .flatMap(json -> ProtobufDeserializer.fromJsonToMono(json, DamService.GetResourcesResponse.getDefaultInstance()))
-            .map(DamService.GetResourcesResponse::getResourcesMap);
+        return getResources(realm, null).map(Revalidated::getValue);
+    }
+
+    @Override
+    public Mono<Revalidated<Map<String, DamService.Resource>>> getResources(String realm,
+                                                                           Revalidated.Validators validators) {
+        return getCatalog(damBaseUrl.resolve(RESOURCES_TEMPLATE.expand(realm, damClientId, damClientSecret)),
+                          "resources",
+                          DamService.GetResourcesResponse.getDefaultInstance(),
+                          validators)
+            .map(revalidated -> revalidated.map(DamService.GetResourcesResponse::getResourcesMap));
     }
 
     @Override
     public Mono<DamService.Resource> getResource(String realm, String resourceId) {
-        final UriTemplate template = new UriTemplate("/dam/v1alpha/{realm}/resources/{resourceId}" +
-            "?client_id={clientId}" +
-            "&client_secret={clientSecret}");
-        final Map<String, Object> variables = new HashMap<>();
-        variables.put("realm", realm);
-        variables.put("resourceId", resourceId);
-        variables.put("clientId", damClientId);
-        variables.put("clientSecret", damClientSecret);
-
-        return WebClientFactory.getWebClient()
-            .get()
-            .uri(damBaseUrl.resolve(template.expand(variables)))
-            .retrieve()
-            .bodyToMono(String.class)
-            .flatMap(json -> ProtobufDeserializer.fromJsonToMono(json, DamService.GetResourceResponse.getDefaultInstance()))
-            .map(DamService.GetResourceResponse::getResource);
+        return getResource(realm, resourceId, null).map(Revalidated::getValue);
+    }
+
+    @Override
+    public Mono<Revalidated<DamService.Resource>> getResource(String realm,
+                                                              String resourceId,
+                                                              Revalidated.Validators validators) {
+        return getCatalog(damBaseUrl.resolve(RESOURCE_TEMPLATE.expand(realm, resourceId, damClientId, damClientSecret)),
+                          "resource",
+                          DamService.GetResourceResponse.getDefaultInstance(),
+                          validators)
+            .map(revalidated -> revalidated.map(DamService.GetResourceResponse::getResource));
     }
 
     @Override
@@ -100,61 +167,58 @@ public class HttpReactiveDamClient implements ReactiveDamClient {
                                                                String resourceId,
                                                                String damToken,
                                                                String refreshToken) {
-        final UriTemplate template = new UriTemplate("/dam/v1alpha/{realm}/resources/{resourceId}/views" +
-            "?client_id={clientId}" +
-            "&client_secret={clientSecret}");
-        final Map<String, Object> variables = new HashMap<>();
-        variables.put("realm", realm);
-        variables.put("resourceId", resourceId);
-        variables.put("clientId", damClientId);
-        variables.put("clientSecret", damClientSecret);
-
-        return webClientFactory.getWebClient(realm, refreshToken, OAuthFilter.Audience.IC)
+        return webClientFactory.getWebClient(upstreamId)
             .get()
-            .uri(damBaseUrl.resolve(template.expand(variables)))
+            .uri(damBaseUrl.resolve(RESOURCE_VIEWS_TEMPLATE.expand(realm, resourceId, damClientId, damClientSecret)))
+            .attribute(OPERATION_ATTRIBUTE, "resourceViews")
+            .header(ACCEPT, PROTOBUF_OR_JSON)
+            .attributes(OAuthFilter.refreshAttributes(realm, refreshToken, OAuthFilter.Audience.IC))
             .header(AUTHORIZATION, "Bearer " + damToken)
-            .retrieve()
-            .bodyToMono(String.class)
-            .flatMap(json -> ProtobufDeserializer.fromJsonToMono(json, DamService.GetViewsResponse.getDefaultInstance()))
+            .exchange()
+            .flatMap(response -> ProtobufDeserializer.fromResponse(upstreamId, response, DamService.GetViewsResponse.getDefaultInstance()))
             .map(DamService.GetViewsResponse::getViewsMap);
     }
 
     @Override
     public Mono<Map<String, DamService.GetFlatViewsResponse.FlatView>> getFlattenedViews(String realm) {
-        final UriTemplate template = new UriTemplate("/dam/v1alpha/{realm}/flatViews" +
-            "?client_id={clientId}" +
-            "&client_secret={clientSecret}");
-        final Map<String, Object> variables = new HashMap<>();
-        variables.put("realm", realm);
-        variables.put("clientId", damClientId);
-        variables.put("clientSecret", damClientSecret);
-
-        return WebClientFactory.getWebClient()
+        return getFlattenedViews(realm, null).map(Revalidated::getValue);
+    }
+
+    @Override
+    public Mono<Revalidated<Map<String, DamService.GetFlatViewsResponse.FlatView>>> getFlattenedViews(String realm,
+                                                                                                     Revalidated.Validators validators) {
+        return getCatalog(damBaseUrl.resolve(FLAT_VIEWS_TEMPLATE.expand(realm, damClientId, damClientSecret)),
+                          "flatViews",
+                          DamService.GetFlatViewsResponse.getDefaultInstance(),
+                          validators)
+            .map(revalidated -> revalidated.map(DamService.GetFlatViewsResponse::getViewsMap));
+    }
+
+    /**
+     * Streams the views as they are decoded from the response, in the order the DAM sends them.
+     */
+    @Override
+    public Flux<DamService.GetFlatViewsResponse.FlatView> streamFlattenedViews(String realm) {
+        return webClient
             .get()
-            .uri(damBaseUrl.resolve(template.expand(variables)))
-            .retrieve()
-            .bodyToMono(String.class)
-            .flatMap(json -> ProtobufDeserializer.fromJsonToMono(json, DamService.GetFlatViewsResponse.getDefaultInstance()))
-            .map(DamService.GetFlatViewsResponse::getViewsMap);
+            .uri(damBaseUrl.resolve(FLAT_VIEWS_TEMPLATE.expand(realm, damClientId, damClientSecret)))
+            .attribute(OPERATION_ATTRIBUTE, "flatViews")
+            .header(ACCEPT, PROTOBUF_OR_JSON)
+            .exchange()
+            .flatMapMany(response -> ProtobufDeserializer.flatViewsFromResponse(upstreamId, response));
     }
 
     // FIXME update proto and return checkout object
     @Override
     public Mono<ResourceResults> checkoutCart(String cartToken) {
-        final UriTemplate template = new UriTemplate("/dam/checkout" +
-            "?client_id={clientId}" +
-            "&client_secret={clientSecret}");
-        final Map<String, Object> variables = new HashMap<>();
-        variables.put("clientId", damClientId);
-        variables.put("clientSecret", damClientSecret);
-
-        return WebClientFactory.getWebClient()
+        return webClient
                 .post()
-                .uri(damBaseUrl.resolve(template.expand(variables)))
+                .uri(damBaseUrl.resolve(CHECKOUT_TEMPLATE.expand(damClientId, damClientSecret)))
+                .attribute(OPERATION_ATTRIBUTE, "checkout")
+                .header(ACCEPT, PROTOBUF_OR_JSON)
                 .header(AUTHORIZATION, "Bearer " + cartToken)
-                .retrieve()
-                .bodyToMono(String.class)
-                .flatMap(json -> ProtobufDeserializer.fromJsonToMono(json, ResourceResults.getDefaultInstance()))
+                .exchange()
+                .flatMap(response -> ProtobufDeserializer.fromResponse(upstreamId, response, ResourceResults.getDefaultInstance()))
                 .onErrorMap(ex -> {
                     try {
                         throw ex;
@@ -168,4 +232,107 @@ public class HttpReactiveDamClient implements ReactiveDamClient {
                 });
     }
 
+    /*
+     * Fetches a catalog endpoint, as a conditional request if validators of an earlier response are given. On 304 Not
+     * Modified, or if the body hashes the same as the earlier one, the result is unchanged. A binary body is joined to
+     * be parsed anyway, so it is hashed first and not parsed if unchanged. Nothing is kept between calls: callers that
+     * cache catalogs keep the validators along with their cached value.
+     */
+    private <T extends Message> Mono<Revalidated<T>> getCatalog(URI uri,
+                                                                String operation,
+                                                                T defaultInstance,
+                                                                Revalidated.Validators previous) {
+        return webClient
+            .get()
+            .uri(uri)
+            .attribute(OPERATION_ATTRIBUTE, operation)
+            .headers(headers -> {
+                headers.set(ACCEPT, PROTOBUF_OR_JSON);
+                if (previous != null && previous.getEtag() != null) {
+                    headers.setIfNoneMatch(previous.getEtag());
+                }
+                if (previous != null && previous.getLastModified() != null) {
+                    headers.set(IF_MODIFIED_SINCE, previous.getLastModified());
+                }
+            })
+            .exchange()
+            .flatMap(response -> {
+                if (response.statusCode() == NOT_MODIFIED && previous != null) {
+                    countRevalidation(operation, "not-modified");
+                    return response.releaseBody().thenReturn(Revalidated.<T>unchanged(previous));
+                }
+                if (response.rawStatusCode() >= 400) {
+                    return ProtobufDeserializer.fromResponse(upstreamId, response, defaultInstance)
+                                               .map(message -> Revalidated.changed(message, null));
+                }
+                final HttpHeaders headers = response.headers().asHttpHeaders();
+                final String etag = headers.getETag();
+                final String lastModified = headers.getFirst(LAST_MODIFIED);
+                final MediaType contentType = headers.getContentType();
+                final MessageDigest digest = sha256();
+                if (contentType != null && APPLICATION_PROTOBUF.isCompatibleWith(contentType)) {
+                    return DataBufferUtils.join(response.body(BodyExtractors.toDataBuffers()))
+                                          .flatMap(buffer -> {
+                                              digest.update(buffer.asByteBuffer());
+                                              final Revalidated.Validators validators = validators(etag, lastModified, digest);
+                                              if (isUnchanged(previous, validators)) {
+                                                  DataBufferUtils.release(buffer);
+                                                  countRevalidation(operation, "unchanged");
+                                                  return Mono.just(Revalidated.<T>unchanged(validators));
+                                              }
+                                              return ProtobufDeserializer.fromDataBuffers(upstreamId,
+                                                                                          contentType,
+                                                                                          headers.getContentLength(),
+                                                                                          Flux.just(buffer),
+                                                                                          defaultInstance)
+                                                                         .map(message -> changed(operation, message, validators));
+                                          });
+                }
+                // JSON is hashed while it streams through the decoder, so an unchanged body is still decoded: only
+                // its hash, known at the end, tells it apart
+                final Flux<DataBuffer> body = response.body(BodyExtractors.toDataBuffers())
+                                                      .doOnNext(buffer -> digest.update(buffer.asByteBuffer()));
+                return ProtobufDeserializer.fromDataBuffers(upstreamId,
+                                                            contentType,
+                                                            headers.getContentLength(),
+                                                            body,
+                                                            defaultInstance)
+                                           .map(message -> {
+                                               final Revalidated.Validators validators = validators(etag, lastModified, digest);
+                                               if (isUnchanged(previous, validators)) {
+                                                   countRevalidation(operation, "unchanged");
+                                                   return Revalidated.<T>unchanged(validators);
+                                               }
+                                               return changed(operation, message, validators);
+                                           });
+            });
+    }
+
+    private <T> Revalidated<T> changed(String operation, T message, Revalidated.Validators validators) {
+        countRevalidation(operation, "changed");
+        return Revalidated.changed(message, validators);
+    }
+
+    private static Revalidated.Validators validators(String etag, String lastModified, MessageDigest digest) {
+        return new Revalidated.Validators(etag, lastModified, Base64.getEncoder().encodeToString(digest.digest()));
+    }
+
+    private static boolean isUnchanged(Revalidated.Validators previous, Revalidated.Validators validators) {
+        return previous != null && validators.getContentHash().equals(previous.getContentHash());
+    }
+
+    private void countRevalidation(String operation, String result) {
+        Metrics.counter("ddap.dam.revalidation", "upstream", upstreamId, "operation", operation, "result", result)
+               .increment();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
 }
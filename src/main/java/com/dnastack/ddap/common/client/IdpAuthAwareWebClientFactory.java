@@ -4,24 +4,30 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 @Component
 @ConditionalOnExpression("${idp.enabled:false}")
 public class IdpAuthAwareWebClientFactory implements AuthAwareWebClientFactory {
 
     private OAuthFilter oAuthFilter;
+    private final ConcurrentMap<String, WebClient> clients = new ConcurrentHashMap<>();
 
     public IdpAuthAwareWebClientFactory(OAuthFilter oAuthFilter) {
         this.oAuthFilter = oAuthFilter;
     }
 
+    /**
+     * The returned client shares the connection pool of {@link WebClientFactory#getWebClient(String)} and only
+     * refreshes tokens for requests carrying {@link OAuthFilter#refreshAttributes}.
+     */
     @Override
-    public WebClient getWebClient(String realm, String refreshToken, OAuthFilter.Audience audience) {
-        if (refreshToken == null || refreshToken.isBlank()) {
-            return WebClientFactory.getWebClient();
-        }
-        return WebClientFactory.getWebClientBuilder()
-                .filter(oAuthFilter.refreshAccessTokenFilter(realm, refreshToken, audience))
-                .build();
+    public WebClient getWebClient(String upstreamId) {
+        return clients.computeIfAbsent(upstreamId, id -> WebClientFactory.getWebClient(id)
+                                                                        .mutate()
+                                                                        .filter(oAuthFilter.refreshAccessTokenFilter())
+                                                                        .build());
     }
 
 }
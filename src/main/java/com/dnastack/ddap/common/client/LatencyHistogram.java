@@ -0,0 +1,75 @@
+package com.dnastack.ddap.common.client;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency distribution of one operation against one upstream. Samples are recorded into an HdrHistogram
+ * {@link Recorder}; once a window has passed and enough samples were collected, they replace the snapshot that
+ * percentiles are read from. Recording never blocks: the thread that wins the rotation swaps the snapshot, and others
+ * arriving meanwhile skip it.
+ */
+class LatencyHistogram {
+
+    private static final long HIGHEST_TRACKABLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MILLIS, 2);
+    private final LongAdder pendingSamples = new LongAdder();
+    private final long windowNanos;
+    private final long minSamples;
+    private final AtomicBoolean rotating = new AtomicBoolean();
+
+    private volatile long windowStart = System.nanoTime();
+    private volatile Histogram snapshot;
+
+    LatencyHistogram(Duration window, long minSamples) {
+        this.windowNanos = window.toNanos();
+        this.minSamples = minSamples;
+    }
+
+    void record(Duration latency) {
+        recorder.recordValue(Math.max(0, Math.min(latency.toMillis(), HIGHEST_TRACKABLE_MILLIS)));
+        pendingSamples.increment();
+        final long now = System.nanoTime();
+        if (shouldRotate(now)) {
+            rotate(now);
+        }
+    }
+
+    /**
+     * @param percentile between 0 and 1
+     * @return the latency in milliseconds at the given percentile of the last completed window, or empty if no window
+     * with enough samples has completed yet.
+     */
+    OptionalLong getValueAtPercentile(double percentile) {
+        final Histogram current = snapshot;
+        return current == null ? OptionalLong.empty() : OptionalLong.of(current.getValueAtPercentile(percentile * 100));
+    }
+
+    private boolean shouldRotate(long now) {
+        // The first snapshot is taken as soon as there are enough samples so that a fresh instance adapts quickly
+        return (snapshot == null || now - windowStart >= windowNanos) && pendingSamples.sum() >= minSamples;
+    }
+
+    private void rotate(long now) {
+        if (!rotating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (shouldRotate(now)) {
+                snapshot = recorder.getIntervalHistogram();
+                pendingSamples.reset();
+                windowStart = now;
+            }
+        } finally {
+            rotating.set(false);
+        }
+    }
+
+}
@@ -13,6 +13,8 @@ import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import reactor.core.publisher.Mono;
 
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static com.dnastack.ddap.common.security.UserTokenCookiePackager.BasicServices.IC;
@@ -23,6 +25,10 @@ import static org.springframework.http.HttpHeaders.SET_COOKIE;
 @ConditionalOnExpression("${idp.enabled:false}")
 public class OAuthFilter {
 
+    private static final String REALM_ATTRIBUTE = OAuthFilter.class.getName() + ".realm";
+    private static final String REFRESH_TOKEN_ATTRIBUTE = OAuthFilter.class.getName() + ".refreshToken";
+    private static final String AUDIENCE_ATTRIBUTE = OAuthFilter.class.getName() + ".audience";
+
     private ReactiveIdpOAuthClient oAuthClient;
     private UserTokenCookiePackager cookiePackager;
 
@@ -32,16 +38,37 @@ public class OAuthFilter {
         this.cookiePackager = cookiePackager;
     }
 
+    /**
+     * Request attributes consumed by {@link #refreshAccessTokenFilter()}.
+     *
+     * @param realm        the realm in which to refresh the token
+     * @param refreshToken may be null, in which case the request is not retried
+     * @param audience     decides which of the refreshed tokens is sent on the retried request
+     */
+    public static Consumer<Map<String, Object>> refreshAttributes(String realm, String refreshToken, Audience audience) {
+        return attributes -> {
+            attributes.put(REALM_ATTRIBUTE, realm);
+            attributes.put(AUDIENCE_ATTRIBUTE, audience);
+            if (refreshToken != null && !refreshToken.isBlank()) {
+                attributes.put(REFRESH_TOKEN_ATTRIBUTE, refreshToken);
+            }
+        };
+    }
+
     /**
      * Failed requests due 401 are retried with refresh access token iff refresh token is provided
+     * through {@link #refreshAttributes(String, String, Audience)}
      *
      */
-    public ExchangeFilterFunction refreshAccessTokenFilter(String realm, String refreshToken, Audience audience) {
+    public ExchangeFilterFunction refreshAccessTokenFilter() {
         return (request, next) -> next.exchange(request)
                 .flatMap((Function<ClientResponse, Mono<ClientResponse>>) clientResponse -> {
+                    final String refreshToken = (String) request.attribute(REFRESH_TOKEN_ATTRIBUTE).orElse(null);
                     if (clientResponse.statusCode().value() != 401 || refreshToken == null) {
                         return Mono.just(clientResponse);
                     }
+                    final String realm = (String) request.attribute(REALM_ATTRIBUTE).orElse(null);
+                    final Audience audience = (Audience) request.attribute(AUDIENCE_ATTRIBUTE).orElse(Audience.IC);
 
                     return oAuthClient.refreshAccessToken(realm, refreshToken, null).flatMap(token -> {
                         ClientRequest retryRequest = ClientRequest.from(request)
@@ -1,12 +1,52 @@
 package com.dnastack.ddap.common.client;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.google.protobuf.WireFormat;
 import com.google.protobuf.util.JsonFormat;
+import dam.v1.DamService.GetFlatViewsResponse;
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 public class ProtobufDeserializer {
 
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    /**
+     * {@code Accept} header value preferring binary protobuf, for upstreams that support it, over JSON.
+     */
+    public static final String PROTOBUF_OR_JSON = APPLICATION_PROTOBUF + ", " + MediaType.APPLICATION_JSON + ";q=0.9";
+
+    /**
+     * Parsers are immutable, so one is shared rather than rebuilt for every message.
+     */
+    static final JsonFormat.Parser JSON_PARSER = JsonFormat.parser().ignoringUnknownFields();
+
+    /**
+     * Chunks buffered ahead of the decode scheduler, bounding the memory held by a body waiting to be decoded.
+     */
+    private static final int OFFLOAD_PREFETCH = 32;
+
+    private static final int VIEWS_ENTRY_TAG = tag(GetFlatViewsResponse.VIEWS_FIELD_NUMBER);
+    // Map entries are messages with the key as field 1 and the value as field 2
+    private static final int ENTRY_VALUE_TAG = tag(2);
+
     public static <T extends Message> Mono<T> fromJsonToMono(String json, T defaultMessageInstance) {
         try {
             return Mono.just(fromJson(json, defaultMessageInstance));
@@ -17,10 +57,250 @@ public class ProtobufDeserializer {
 
     public static <T extends Message> T fromJson(String json, T defaultMessageInstance) throws InvalidProtocolBufferException {
         Message.Builder builder = defaultMessageInstance.newBuilderForType();
-        JsonFormat.parser()
-                  .ignoringUnknownFields()
-                  .merge(json, builder);
+        JSON_PARSER.merge(json, builder);
         return (T) builder.build();
     }
 
+    /**
+     * Decodes the body of a response requested as {@link #PROTOBUF_OR_JSON}, failing with a
+     * {@link org.springframework.web.reactive.function.client.WebClientResponseException} on error statuses, like
+     * {@code retrieve()} does.
+     *
+     * @param upstreamId the upstream the response came from
+     * @return the decoded message, or empty if the response has no body
+     */
+    public static <T extends Message> Mono<T> fromResponse(String upstreamId,
+                                                           ClientResponse response,
+                                                           T defaultMessageInstance) {
+        if (response.rawStatusCode() >= 400) {
+            return response.createException().flatMap(Mono::error);
+        }
+        return fromDataBuffers(upstreamId,
+                               response.headers().contentType().orElse(null),
+                               response.headers().contentLength().orElse(-1),
+                               response.body(BodyExtractors.toDataBuffers()),
+                               defaultMessageInstance);
+    }
+
+    /**
+     * Decodes a body of unknown length. See {@link #fromDataBuffers(String, MediaType, long, Flux, Message)}.
+     */
+    public static <T extends Message> Mono<T> fromDataBuffers(String upstreamId,
+                                                              MediaType contentType,
+                                                              Flux<DataBuffer> body,
+                                                              T defaultMessageInstance) {
+        return fromDataBuffers(upstreamId, contentType, -1, body, defaultMessageInstance);
+    }
+
+    /**
+     * Decodes a body that is either binary protobuf or JSON, depending on its content type. JSON is decoded as it
+     * streams in, so it is not subject to the in-memory size limit of the client's codecs. Every buffer is released.
+     * The wire format is counted as {@code ddap.client.wire.format}, tagged with the upstream and format.
+     * <p>
+     * Large bodies are decoded off the event loop, as decided by the upstream's {@link DecodeOffload}.
+     *
+     * @param upstreamId    the upstream the body came from
+     * @param contentType   content type of the body. JSON is assumed if null.
+     * @param contentLength length of the body in bytes, or negative if unknown
+     * @return the decoded message, or empty if the body is empty
+     */
+    public static <T extends Message> Mono<T> fromDataBuffers(String upstreamId,
+                                                              MediaType contentType,
+                                                              long contentLength,
+                                                              Flux<DataBuffer> body,
+                                                              T defaultMessageInstance) {
+        final DecodeOffload offload = DecodeOffload.forUpstream(upstreamId, null);
+        final boolean offloaded = offload.shouldOffload(contentLength);
+        if (contentType != null && APPLICATION_PROTOBUF.isCompatibleWith(contentType)) {
+            Metrics.counter("ddap.client.wire.format", "upstream", upstreamId, "format", "protobuf").increment();
+            final Timer timer = offload.timer("protobuf", offloaded);
+            final Mono<DataBuffer> joined = DataBufferUtils.join(body);
+            return (offloaded ? joined.publishOn(DecodeOffload.getScheduler()) : joined)
+                .flatMap(buffer -> {
+                    final long start = System.nanoTime();
+                    try {
+                        return Mono.just((T) defaultMessageInstance.getParserForType()
+                                                                   .parseFrom(buffer.asByteBuffer()));
+                    } catch (InvalidProtocolBufferException e) {
+                        return Mono.error(e);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                });
+        }
+        Metrics.counter("ddap.client.wire.format", "upstream", upstreamId, "format", "json").increment();
+        final Flux<DataBuffer> chunks = offloaded ? body.publishOn(DecodeOffload.getScheduler(), OFFLOAD_PREFETCH) : body;
+        return ProtobufJsonStreamDecoder.decode(chunks, defaultMessageInstance, offload.timer("json", offloaded));
+    }
+
+    /**
+     * Decodes the views of a flattened views response one by one, in the order the upstream sent them, emitting each
+     * as soon as it is decoded rather than once the whole map is built. Both JSON and binary protobuf are decoded as
+     * they stream in: a binary view is parsed as soon as all of its bytes have arrived, and only the bytes of the view
+     * being received are held between chunks.
+     * <p>
+     * Large bodies are decoded off the event loop, as decided by the upstream's {@link DecodeOffload}.
+     *
+     * @param upstreamId the upstream the response came from
+     */
+    public static Flux<FlatView> flatViewsFromResponse(String upstreamId, ClientResponse response) {
+        if (response.rawStatusCode() >= 400) {
+            return response.createException().flatMapMany(Flux::error);
+        }
+        final MediaType contentType = response.headers().contentType().orElse(null);
+        final boolean offloaded = DecodeOffload.forUpstream(upstreamId, null)
+                                               .shouldOffload(response.headers().contentLength().orElse(-1));
+        final Flux<DataBuffer> body = response.body(BodyExtractors.toDataBuffers());
+        final Flux<DataBuffer> chunks = offloaded ? body.publishOn(DecodeOffload.getScheduler(), OFFLOAD_PREFETCH) : body;
+        if (contentType != null && APPLICATION_PROTOBUF.isCompatibleWith(contentType)) {
+            Metrics.counter("ddap.client.wire.format", "upstream", upstreamId, "format", "protobuf").increment();
+            return flatViews(chunks);
+        }
+        Metrics.counter("ddap.client.wire.format", "upstream", upstreamId, "format", "json").increment();
+        return ProtobufJsonStreamDecoder.decodeFlatViews(chunks);
+    }
+
+    /**
+     * Decodes the views of a binary {@link GetFlatViewsResponse} as its chunks arrive. See
+     * {@link #flatViewsFromResponse}.
+     *
+     * @param body the chunks of a binary body. Every chunk is released once read.
+     * @return the views in the order they appear in the body
+     */
+    static Flux<FlatView> flatViews(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            final FlatViewReader reader = new FlatViewReader();
+            return body.concatMap(chunk -> {
+                try {
+                    return Flux.fromIterable(reader.read(chunk));
+                } catch (IOException e) {
+                    return Flux.error(e);
+                }
+            }).concatWith(Mono.defer(() -> reader.isDone()
+                                            ? Mono.empty()
+                                            : Mono.error(new InvalidProtocolBufferException("Truncated flat views response"))));
+        }).doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private static int tag(int lengthDelimitedField) {
+        return lengthDelimitedField << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    }
+
+    /*
+     * Parses the views map entries of a serialized GetFlatViewsResponse from consecutive chunks. Bytes of a field that
+     * has not fully arrived are kept until the next chunk; everything before it is dropped.
+     */
+    private static class FlatViewReader {
+        private byte[] pending = new byte[0];
+        private int length;
+        private int cursor;
+        private long varint;
+
+        List<FlatView> read(DataBuffer chunk) throws IOException {
+            try {
+                final int readable = chunk.readableByteCount();
+                if (pending.length < length + readable) {
+                    pending = Arrays.copyOf(pending, Math.max(length + readable, pending.length * 2));
+                }
+                chunk.read(pending, length, readable);
+                length += readable;
+            } finally {
+                DataBufferUtils.release(chunk);
+            }
+
+            final List<FlatView> views = new ArrayList<>();
+            int consumed = 0;
+            while (true) {
+                cursor = consumed;
+                if (!readVarint()) {
+                    break;
+                }
+                final int tag = (int) varint;
+                final int start;
+                final int end;
+                switch (WireFormat.getTagWireType(tag)) {
+                    case WireFormat.WIRETYPE_VARINT:
+                        if (!readVarint()) {
+                            return compact(views, consumed);
+                        }
+                        start = end = cursor;
+                        break;
+                    case WireFormat.WIRETYPE_FIXED64:
+                        start = cursor;
+                        end = cursor + 8;
+                        break;
+                    case WireFormat.WIRETYPE_FIXED32:
+                        start = cursor;
+                        end = cursor + 4;
+                        break;
+                    case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+                        if (!readVarint()) {
+                            return compact(views, consumed);
+                        }
+                        if (varint < 0 || varint > Integer.MAX_VALUE - cursor) {
+                            throw new InvalidProtocolBufferException("Invalid field length: " + varint);
+                        }
+                        start = cursor;
+                        end = cursor + (int) varint;
+                        break;
+                    default:
+                        throw new InvalidProtocolBufferException("Unsupported wire type in tag " + tag);
+                }
+                if (end > length) {
+                    break;
+                }
+                if (tag == VIEWS_ENTRY_TAG) {
+                    views.add(entryValue(CodedInputStream.newInstance(pending, start, end - start)));
+                }
+                consumed = end;
+            }
+            return compact(views, consumed);
+        }
+
+        boolean isDone() {
+            return length == 0;
+        }
+
+        private List<FlatView> compact(List<FlatView> views, int consumed) {
+            System.arraycopy(pending, consumed, pending, 0, length - consumed);
+            length -= consumed;
+            return views;
+        }
+
+        /*
+         * Reads the varint at the cursor into varint and moves the cursor past it.
+         *
+         * @return false if the varint has not fully arrived
+         */
+        private boolean readVarint() throws InvalidProtocolBufferException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (cursor >= length) {
+                    return false;
+                }
+                final byte b = pending[cursor++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    varint = value;
+                    return true;
+                }
+            }
+            throw new InvalidProtocolBufferException("Malformed varint");
+        }
+
+        private static FlatView entryValue(CodedInputStream entry) throws IOException {
+            FlatView view = FlatView.getDefaultInstance();
+            int tag;
+            while ((tag = entry.readTag()) != 0) {
+                if (tag == ENTRY_VALUE_TAG) {
+                    view = entry.readMessage(FlatView.parser(), ExtensionRegistryLite.getEmptyRegistry());
+                } else {
+                    entry.skipField(tag);
+                }
+            }
+            return view;
+        }
+    }
+
 }
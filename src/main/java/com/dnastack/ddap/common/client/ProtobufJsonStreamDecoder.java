@@ -0,0 +1,755 @@
+package com.dnastack.ddap.common.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.util.JsonFormat;
+import dam.v1.DamService.GetFlatViewsResponse;
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Decodes a protobuf message from a JSON body as it arrives, feeding every chunk to a non-blocking Jackson parser and
+ * the resulting tokens straight into the message builders. Chunks are released as soon as they are parsed, so neither
+ * the raw body nor a {@code String} copy of it is ever held in memory as a whole.
+ * <p>
+ * Accepts the same input as {@code JsonFormat.parser().ignoringUnknownFields()}: fields by JSON or original name,
+ * quoted 64-bit integers, enum names or numbers, and base64 bytes. Well-known types (Timestamp, Struct, wrappers, ...)
+ * are rare in DAM and IC responses, so their values are captured and handed to {@link JsonFormat}.
+ * <p>
+ * Messages are built through their descriptors, except for flattened views, which make up the bulk of large catalog
+ * responses: those are decoded by hand-specialised frames calling the generated setters directly.
+ */
+public class ProtobufJsonStreamDecoder<T extends Message> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ConcurrentMap<Descriptor, Map<String, FieldDescriptor>> FIELDS = new ConcurrentHashMap<>();
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final Message.Builder rootBuilder;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private byte[] chunk = new byte[0];
+    private boolean started;
+    private T result;
+    private long decodeNanos;
+    /*
+     * Flattened views decoded since last taken, when streaming them rather than building the response.
+     */
+    private List<FlatView> emitted;
+
+    private ProtobufJsonStreamDecoder(T defaultMessageInstance) throws IOException {
+        this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.rootBuilder = defaultMessageInstance.newBuilderForType();
+    }
+
+    /**
+     * @param body                   the chunks of a JSON body. Every chunk is released once parsed.
+     * @param defaultMessageInstance the default instance of the message to decode
+     * @return the decoded message, or empty if the body is empty
+     */
+    public static <T extends Message> Mono<T> decode(Flux<DataBuffer> body, T defaultMessageInstance) {
+        return decode(body, defaultMessageInstance, null);
+    }
+
+    /**
+     * @param body                   the chunks of a JSON body. Every chunk is released once parsed.
+     * @param defaultMessageInstance the default instance of the message to decode
+     * @param timer                  records the time spent parsing the body, not counting the time spent waiting for
+     *                               its chunks. May be null.
+     * @return the decoded message, or empty if the body is empty
+     */
+    public static <T extends Message> Mono<T> decode(Flux<DataBuffer> body, T defaultMessageInstance, Timer timer) {
+        return Mono.defer(() -> {
+            final ProtobufJsonStreamDecoder<T> decoder;
+            try {
+                decoder = new ProtobufJsonStreamDecoder<>(defaultMessageInstance);
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+            return body.doOnNext(buffer -> {
+                           final long start = System.nanoTime();
+                           try {
+                               decoder.feed(buffer);
+                           } catch (IOException e) {
+                               throw new UncheckedIOException(e);
+                           } finally {
+                               DataBufferUtils.release(buffer);
+                               decoder.decodeNanos += System.nanoTime() - start;
+                           }
+                       })
+                       .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                       .then(Mono.fromCallable(() -> {
+                           final long start = System.nanoTime();
+                           final T message = decoder.finish();
+                           if (timer != null) {
+                               timer.record(decoder.decodeNanos + System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                           }
+                           return message;
+                       }));
+        });
+    }
+
+    /**
+     * Decodes the views of a JSON flattened views response, emitting the views decoded from each chunk as soon as the
+     * chunk is parsed. The response message itself is never built, so only the views not yet consumed downstream are
+     * held in memory.
+     *
+     * @param body the chunks of a JSON body. Every chunk is released once parsed.
+     * @return the views in the order they appear in the body
+     */
+    public static Flux<FlatView> decodeFlatViews(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            final ProtobufJsonStreamDecoder<GetFlatViewsResponse> decoder;
+            try {
+                decoder = new ProtobufJsonStreamDecoder<>(GetFlatViewsResponse.getDefaultInstance());
+            } catch (IOException e) {
+                return Flux.error(e);
+            }
+            decoder.emitted = new ArrayList<>();
+            return body.concatMapIterable(buffer -> {
+                           try {
+                               decoder.feed(buffer);
+                           } catch (IOException e) {
+                               throw new UncheckedIOException(e);
+                           } finally {
+                               DataBufferUtils.release(buffer);
+                           }
+                           return decoder.takeEmitted();
+                       })
+                       .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                       .concatWith(Flux.defer(() -> {
+                           try {
+                               decoder.finish();
+                           } catch (IOException e) {
+                               return Flux.error(e);
+                           }
+                           return Flux.fromIterable(decoder.takeEmitted());
+                       }));
+        });
+    }
+
+    private List<FlatView> takeEmitted() {
+        final List<FlatView> views = emitted;
+        emitted = new ArrayList<>();
+        return views;
+    }
+
+    private void feed(DataBuffer buffer) throws IOException {
+        final ByteBuffer bytes = buffer.asByteBuffer();
+        final int length = bytes.remaining();
+        if (length == 0) {
+            return;
+        }
+        if (bytes.hasArray()) {
+            final int offset = bytes.arrayOffset() + bytes.position();
+            feeder.feedInput(bytes.array(), offset, offset + length);
+        } else {
+            // Direct buffers have to be copied, but only one chunk at a time
+            if (chunk.length < length) {
+                chunk = new byte[length];
+            }
+            bytes.get(chunk, 0, length);
+            feeder.feedInput(chunk, 0, length);
+        }
+        drain();
+    }
+
+    private T finish() throws IOException {
+        feeder.endOfInput();
+        drain();
+        if (started && result == null) {
+            throw new JsonParseException(parser, "Unexpected end of input");
+        }
+        parser.close();
+        return result;
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+            if (!started) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new JsonParseException(parser, "Expected a JSON object but got " + token);
+                }
+                started = true;
+                stack.push(messageFrame(rootBuilder, this::complete));
+            } else if (stack.isEmpty()) {
+                throw new JsonParseException(parser, "Unexpected " + token + " after the end of the message");
+            } else {
+                stack.peek().onToken(token);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void complete(Object message) {
+        result = (T) message;
+    }
+
+    /*
+     * Decodes the value starting at the current token into the given target. Messages and captured values may span
+     * more tokens, in which case a frame is pushed to consume them.
+     */
+    private void startValue(FieldDescriptor field,
+                            JsonToken token,
+                            Supplier<Message.Builder> builder,
+                            Consumer<Object> target) throws IOException {
+        if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+            if (isWellKnown(field.getMessageType())) {
+                final CaptureFrame capture = new CaptureFrame(builder, target);
+                if (!capture.consume(token)) {
+                    stack.push(capture);
+                }
+            } else if (token == JsonToken.START_OBJECT) {
+                stack.push(messageFrame(builder.get(), target));
+            } else if (token != JsonToken.VALUE_NULL) {
+                throw new JsonParseException(parser, "Expected an object for field " + field.getFullName() + " but got " + token);
+            }
+            return;
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return;
+        }
+        final Object value = scalar(field, token);
+        if (value != null) {
+            target.accept(value);
+        }
+    }
+
+    private Frame messageFrame(Message.Builder builder, Consumer<Object> target) {
+        final Descriptor descriptor = builder.getDescriptorForType();
+        if (descriptor == GetFlatViewsResponse.getDescriptor()) {
+            return new FlatViewsResponseFrame(target);
+        }
+        if (descriptor == FlatView.getDescriptor()) {
+            return new FlatViewFrame(target);
+        }
+        return new MessageFrame(builder, target);
+    }
+
+    private void skip(JsonToken token) {
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            stack.push(new SkipFrame());
+        }
+    }
+
+    private Object scalar(FieldDescriptor field, JsonToken token) throws IOException {
+        switch (field.getJavaType()) {
+            case INT:
+                return (int) longValue(token, isUnsigned(field));
+            case LONG:
+                return longValue(token, isUnsigned(field));
+            case FLOAT:
+                return (float) doubleValue(token);
+            case DOUBLE:
+                return doubleValue(token);
+            case BOOLEAN:
+                if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+                    return token == JsonToken.VALUE_TRUE;
+                }
+                break;
+            case STRING:
+                if (token == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                break;
+            case BYTE_STRING:
+                if (token == JsonToken.VALUE_STRING) {
+                    return bytesValue(parser.getText());
+                }
+                break;
+            case ENUM:
+                if (token == JsonToken.VALUE_STRING) {
+                    // Unknown enum names are ignored, like unknown fields
+                    return field.getEnumType().findValueByName(parser.getText());
+                }
+                if (token == JsonToken.VALUE_NUMBER_INT) {
+                    return field.getEnumType().findValueByNumberCreatingIfUnknown(parser.getIntValue());
+                }
+                break;
+            default:
+                break;
+        }
+        throw new JsonParseException(parser, "Unexpected " + token + " for field " + field.getFullName());
+    }
+
+    private long longValue(JsonToken token, boolean unsigned) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+                return unsigned ? parser.getBigIntegerValue().longValue() : parser.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDecimalValue().toBigIntegerExact().longValue();
+            case VALUE_STRING:
+                return new BigDecimal(parser.getText()).toBigIntegerExact().longValue();
+            default:
+                throw new JsonParseException(parser, "Expected an integer but got " + token);
+        }
+    }
+
+    private double doubleValue(JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_STRING:
+                // Also covers "NaN", "Infinity" and "-Infinity"
+                return Double.parseDouble(parser.getText());
+            default:
+                throw new JsonParseException(parser, "Expected a number but got " + token);
+        }
+    }
+
+    private static ByteString bytesValue(String base64) {
+        try {
+            return ByteString.copyFrom(Base64.getDecoder().decode(base64));
+        } catch (IllegalArgumentException e) {
+            return ByteString.copyFrom(Base64.getUrlDecoder().decode(base64));
+        }
+    }
+
+    private static Object mapKey(FieldDescriptor keyField, String key) {
+        switch (keyField.getJavaType()) {
+            case INT:
+                return (int) Long.parseLong(key);
+            case LONG:
+                return isUnsigned(keyField) ? Long.parseUnsignedLong(key) : Long.parseLong(key);
+            case BOOLEAN:
+                return Boolean.parseBoolean(key);
+            default:
+                return key;
+        }
+    }
+
+    private static boolean isUnsigned(FieldDescriptor field) {
+        switch (field.getType()) {
+            case UINT32:
+            case FIXED32:
+            case UINT64:
+            case FIXED64:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isWellKnown(Descriptor descriptor) {
+        return descriptor.getFile().getPackage().equals("google.protobuf");
+    }
+
+    private static Map<String, FieldDescriptor> fields(Descriptor descriptor) {
+        return FIELDS.computeIfAbsent(descriptor, d -> {
+            final Map<String, FieldDescriptor> fields = new HashMap<>();
+            for (FieldDescriptor field : d.getFields()) {
+                fields.put(field.getName(), field);
+                fields.put(field.getJsonName(), field);
+            }
+            return fields;
+        });
+    }
+
+    private interface Frame {
+        void onToken(JsonToken token) throws IOException;
+    }
+
+    private class MessageFrame implements Frame {
+        private final Message.Builder builder;
+        private final Consumer<Object> target;
+        private final Map<String, FieldDescriptor> fields;
+        private FieldDescriptor field;
+
+        private MessageFrame(Message.Builder builder, Consumer<Object> target) {
+            this.builder = builder;
+            this.target = target;
+            this.fields = fields(builder.getDescriptorForType());
+        }
+
+        @Override
+        public void onToken(JsonToken token) throws IOException {
+            if (token == JsonToken.FIELD_NAME) {
+                field = fields.get(parser.getCurrentName());
+                return;
+            }
+            if (token == JsonToken.END_OBJECT) {
+                stack.pop();
+                target.accept(builder.build());
+                return;
+            }
+
+            final FieldDescriptor current = field;
+            field = null;
+            if (current == null) {
+                skip(token);
+            } else if (current.isMapField()) {
+                if (token == JsonToken.START_OBJECT) {
+                    stack.push(new MapFrame(builder, current));
+                } else if (token != JsonToken.VALUE_NULL) {
+                    throw new JsonParseException(parser, "Expected an object for map field " + current.getFullName());
+                }
+            } else if (current.isRepeated()) {
+                if (token == JsonToken.START_ARRAY) {
+                    stack.push(new ArrayFrame(builder, current));
+                } else if (token != JsonToken.VALUE_NULL) {
+                    throw new JsonParseException(parser, "Expected an array for repeated field " + current.getFullName());
+                }
+            } else {
+                startValue(current, token, () -> builder.newBuilderForField(current), value -> builder.setField(current, value));
+            }
+        }
+    }
+
+    private class ArrayFrame implements Frame {
+        private final Message.Builder owner;
+        private final FieldDescriptor field;
+
+        private ArrayFrame(Message.Builder owner, FieldDescriptor field) {
+            this.owner = owner;
+            this.field = field;
+        }
+
+        @Override
+        public void onToken(JsonToken token) throws IOException {
+            if (token == JsonToken.END_ARRAY) {
+                stack.pop();
+                return;
+            }
+            startValue(field, token, () -> owner.newBuilderForField(field), value -> owner.addRepeatedField(field, value));
+        }
+    }
+
+    private class MapFrame implements Frame {
+        private final Message.Builder owner;
+        private final FieldDescriptor field;
+        private final FieldDescriptor keyField;
+        private final FieldDescriptor valueField;
+        private Object key;
+
+        private MapFrame(Message.Builder owner, FieldDescriptor field) {
+            this.owner = owner;
+            this.field = field;
+            this.keyField = field.getMessageType().findFieldByNumber(1);
+            this.valueField = field.getMessageType().findFieldByNumber(2);
+        }
+
+        @Override
+        public void onToken(JsonToken token) throws IOException {
+            if (token == JsonToken.FIELD_NAME) {
+                key = mapKey(keyField, parser.getCurrentName());
+                return;
+            }
+            if (token == JsonToken.END_OBJECT) {
+                stack.pop();
+                return;
+            }
+            final Object entryKey = key;
+            startValue(valueField,
+                       token,
+                       () -> owner.newBuilderForField(field).newBuilderForField(valueField),
+                       value -> owner.addRepeatedField(field, owner.newBuilderForField(field)
+                                                                  .setField(keyField, entryKey)
+                                                                  .setField(valueField, value)
+                                                                  .build()));
+        }
+    }
+
+    /*
+     * Copies the tokens of one value into a JSON string and merges it with JsonFormat.
+     */
+    private class CaptureFrame implements Frame {
+        private final Supplier<Message.Builder> builder;
+        private final Consumer<Object> target;
+        private final StringWriter json = new StringWriter();
+        private final JsonGenerator generator;
+        private int depth;
+
+        private CaptureFrame(Supplier<Message.Builder> builder, Consumer<Object> target) throws IOException {
+            this.builder = builder;
+            this.target = target;
+            this.generator = JSON_FACTORY.createGenerator(json);
+        }
+
+        @Override
+        public void onToken(JsonToken token) throws IOException {
+            if (consume(token)) {
+                stack.pop();
+            }
+        }
+
+        /**
+         * @return true once the whole value has been captured and delivered
+         */
+        private boolean consume(JsonToken token) throws IOException {
+            generator.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+            if (depth > 0) {
+                return false;
+            }
+            generator.close();
+            final Message.Builder valueBuilder = builder.get();
+            ProtobufDeserializer.JSON_PARSER.merge(json.toString(), valueBuilder);
+            target.accept(valueBuilder.build());
+            return true;
+        }
+    }
+
+    private String stringValue(String field, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        throw new JsonParseException(parser, "Unexpected " + token + " for field " + field);
+    }
+
+    /*
+     * Hand-specialised frames for GetFlatViewsResponse. Fields are matched by JSON and original name, like
+     * MessageFrame does, and unknown fields are skipped.
+     */
+    private class FlatViewsResponseFrame implements Frame {
+        private final GetFlatViewsResponse.Builder builder = GetFlatViewsResponse.newBuilder();
+        private final Consumer<Object> target;
+        private String field;
+
+        private FlatViewsResponseFrame(Consumer<Object> target) {
+            this.target = target;
+        }
+
+        @Override
+        public void onToken(JsonToken token) throws IOException {
+            if (token == JsonToken.FIELD_NAME) {
+                field = parser.getCurrentName();
+            } else if (token == JsonToken.END_OBJECT) {
+                stack.pop();
+                target.accept(builder.build());
+            } else if ("views".equals(field) && token == JsonToken.START_OBJECT) {
+                stack.push(new ObjectMapFrame<FlatView>(emitted == null
+                                                        ? builder::putViews
+                                                        : (path, view) -> emitted.add(view),
+                                                        FlatViewFrame::new));
+            } else if (token != JsonToken.VALUE_NULL) {
+                skip(token);
+            }
+        }
+    }
+
+    private class FlatViewFrame implements Frame {
+        private final FlatView.Builder builder = FlatView.newBuilder();
+        private final Consumer<Object> target;
+        private String field;
+
+        private FlatViewFrame(Consumer<Object> target) {
+            this.target = target;
+        }
+
+        @Override
+        public void onToken(JsonToken token) throws IOException {
+            if (token == JsonToken.FIELD_NAME) {
+                field = parser.getCurrentName();
+                return;
+            }
+            if (token == JsonToken.END_OBJECT) {
+                stack.pop();
+                target.accept(builder.build());
+                return;
+            }
+            if (token == JsonToken.VALUE_NULL) {
+                return;
+            }
+            switch (field) {
+                case "resourcePath":
+                case "resource_path":
+                    builder.setResourcePath(stringValue(field, token));
+                    break;
+                case "umbrella":
+                    builder.setUmbrella(stringValue(field, token));
+                    break;
+                case "resourceName":
+                case "resource_name":
+                    builder.setResourceName(stringValue(field, token));
+                    break;
+                case "viewName":
+                case "view_name":
+                    builder.setViewName(stringValue(field, token));
+                    break;
+                case "roleName":
+                case "role_name":
+                    builder.setRoleName(stringValue(field, token));
+                    break;
+                case "interfaceName":
+                case "interface_name":
+                    builder.setInterfaceName(stringValue(field, token));
+                    break;
+                case "interfaceUri":
+                case "interface_uri":
+                    builder.setInterfaceUri(stringValue(field, token));
+                    break;
+                case "contentType":
+                case "content_type":
+                    builder.setContentType(stringValue(field, token));
+                    break;
+                case "serviceName":
+                case "service_name":
+                    builder.setServiceName(stringValue(field, token));
+                    break;
+                case "platform":
+                    builder.setPlatform(stringValue(field, token));
+                    break;
+                case "platformService":
+                case "platform_service":
+                    builder.setPlatformService(stringValue(field, token));
+                    break;
+                case "maxTokenTtl":
+                case "max_token_ttl":
+                    builder.setMaxTokenTtl(stringValue(field, token));
+                    break;
+                case "labels":
+                    pushStringMap(field, token, builder::putLabels);
+                    break;
+                case "resourceUi":
+                case "resource_ui":
+                    pushStringMap(field, token, builder::putResourceUi);
+                    break;
+                case "viewUi":
+                case "view_ui":
+                    pushStringMap(field, token, builder::putViewUi);
+                    break;
+                case "roleUi":
+                case "role_ui":
+                    pushStringMap(field, token, builder::putRoleUi);
+                    break;
+                case "roleCategories":
+                case "role_categories":
+                    if (token != JsonToken.START_ARRAY) {
+                        throw new JsonParseException(parser, "Expected an array for field " + field);
+                    }
+                    stack.push(new StringListFrame(field, builder::addRoleCategories));
+                    break;
+                default:
+                    skip(token);
+                    break;
+            }
+        }
+
+        private void pushStringMap(String field, JsonToken token, BiConsumer<String, String> put) throws IOException {
+            if (token != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected an object for field " + field);
+            }
+            stack.push(new StringMapFrame(field, put));
+        }
+    }
+
+    private class ObjectMapFrame<V> implements Frame {
+        private final BiConsumer<String, V> put;
+        private final Function<Consumer<Object>, Frame> valueFrame;
+        private String key;
+
+        private ObjectMapFrame(BiConsumer<String, V> put, Function<Consumer<Object>, Frame> valueFrame) {
+            this.put = put;
+            this.valueFrame = valueFrame;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onToken(JsonToken token) throws IOException {
+            if (token == JsonToken.FIELD_NAME) {
+                key = parser.getCurrentName();
+            } else if (token == JsonToken.END_OBJECT) {
+                stack.pop();
+            } else if (token == JsonToken.START_OBJECT) {
+                final String entryKey = key;
+                stack.push(valueFrame.apply(value -> put.accept(entryKey, (V) value)));
+            } else if (token != JsonToken.VALUE_NULL) {
+                throw new JsonParseException(parser, "Expected an object for key " + key + " but got " + token);
+            }
+        }
+    }
+
+    private class StringMapFrame implements Frame {
+        private final String field;
+        private final BiConsumer<String, String> put;
+        private String key;
+
+        private StringMapFrame(String field, BiConsumer<String, String> put) {
+            this.field = field;
+            this.put = put;
+        }
+
+        @Override
+        public void onToken(JsonToken token) throws IOException {
+            if (token == JsonToken.FIELD_NAME) {
+                key = parser.getCurrentName();
+            } else if (token == JsonToken.END_OBJECT) {
+                stack.pop();
+            } else if (token != JsonToken.VALUE_NULL) {
+                put.accept(key, stringValue(field, token));
+            }
+        }
+    }
+
+    private class StringListFrame implements Frame {
+        private final String field;
+        private final Consumer<String> add;
+
+        private StringListFrame(String field, Consumer<String> add) {
+            this.field = field;
+            this.add = add;
+        }
+
+        @Override
+        public void onToken(JsonToken token) throws IOException {
+            if (token == JsonToken.END_ARRAY) {
+                stack.pop();
+            } else {
+                add.accept(stringValue(field, token));
+            }
+        }
+    }
+
+    private class SkipFrame implements Frame {
+        private int depth = 1;
+
+        @Override
+        public void onToken(JsonToken token) {
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd() && --depth == 0) {
+                stack.pop();
+            }
+        }
+    }
+
+}
@@ -2,8 +2,10 @@ package com.dnastack.ddap.common.client;
 
 import dam.v1.DamService;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
 import java.util.Map;
 
 public interface ReactiveDamClient {
@@ -13,13 +15,78 @@ public interface ReactiveDamClient {
 
     Mono<DamService.Resource> getResource(String realm, String resourceId);
 
+    /**
+     * Like {@link #getResources(String)}, as a conditional request: the result is
+     * {@link Revalidated#isUnchanged() unchanged} if the resources did not change since the response the given
+     * validators were taken from. Implementations that cannot tell always fetch.
+     *
+     * @param validators validators of a previous result, or null to fetch unconditionally
+     */
+    default Mono<Revalidated<Map<String, DamService.Resource>>> getResources(String realm,
+                                                                            Revalidated.Validators validators) {
+        return getResources(realm).map(resources -> Revalidated.changed(resources, null));
+    }
+
+    /**
+     * Like {@link #getResource(String, String)}, as a conditional request. See
+     * {@link #getResources(String, Revalidated.Validators)}.
+     */
+    default Mono<Revalidated<DamService.Resource>> getResource(String realm,
+                                                               String resourceId,
+                                                               Revalidated.Validators validators) {
+        return getResource(realm, resourceId).map(resource -> Revalidated.changed(resource, null));
+    }
+
+    /**
+     * Fetches the given resources with at most {@code concurrency} requests in flight. Resources that fail are
+     * reported in {@link BulkResult#getErrors()} rather than failing the whole call.
+     */
+    default Mono<BulkResult<DamService.Resource>> getResources(String realm,
+                                                               Collection<String> resourceIds,
+                                                               int concurrency) {
+        return BulkResult.fetch(resourceIds, concurrency, resourceId -> getResource(realm, resourceId));
+    }
+
     Mono<Map<String, DamService.View>> getResourceViews(String realm,
                                                         String resourceId,
                                                         String damToken,
                                                         String refreshToken);
 
+    /**
+     * Fetches the views of the given resources with at most {@code concurrency} requests in flight. Resources that
+     * fail are reported in {@link BulkResult#getErrors()} rather than failing the whole call.
+     */
+    default Mono<BulkResult<Map<String, DamService.View>>> getResourceViews(String realm,
+                                                                            Collection<String> resourceIds,
+                                                                            String damToken,
+                                                                            String refreshToken,
+                                                                            int concurrency) {
+        return BulkResult.fetch(resourceIds,
+                                concurrency,
+                                resourceId -> getResourceViews(realm, resourceId, damToken, refreshToken));
+    }
+
     Mono<Map<String, DamService.GetFlatViewsResponse.FlatView>> getFlattenedViews(String realm);
 
+    /**
+     * Like {@link #getFlattenedViews(String)}, as a conditional request. See
+     * {@link #getResources(String, Revalidated.Validators)}.
+     */
+    default Mono<Revalidated<Map<String, DamService.GetFlatViewsResponse.FlatView>>> getFlattenedViews(String realm,
+                                                                                                      Revalidated.Validators validators) {
+        return getFlattenedViews(realm).map(views -> Revalidated.changed(views, null));
+    }
+
+    /**
+     * Emits the flattened views of the realm one by one, in no guaranteed order. Unlike {@link #getFlattenedViews},
+     * implementations need not build the whole map before emitting the first view. Callers that need the views in path
+     * order, such as the streaming flat view endpoint, go through
+     * {@link com.dnastack.ddap.common.catalog.FlatViewCatalog}.
+     */
+    default Flux<DamService.GetFlatViewsResponse.FlatView> streamFlattenedViews(String realm) {
+        return getFlattenedViews(realm).flatMapIterable(Map::values);
+    }
+
     // FIXME update proto and return checkout object
     Mono<DamService.ResourceResults> checkoutCart(String cartToken);
 }
@@ -0,0 +1,110 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.config.RetryBudgetProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket shared by everything that retries requests to one upstream (the client-side timeout ladder and the
+ * gateway's TimeoutAndRetry filter). Every successful request deposits {@link RetryBudgetProperties#getRatio()} of a
+ * token, time deposits {@link RetryBudgetProperties#getMinRetriesPerSecond()} tokens per second, and every retry
+ * withdraws a whole token. When the balance is exhausted, retries are skipped and counted as
+ * {@code ddap.client.retry.budget.exhausted}.
+ */
+public class RetryBudget {
+
+    private static final long TOKEN = 1000;
+    private static final ConcurrentMap<String, RetryBudget> BUDGETS = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+    private final long depositPerSuccess;
+    private final long depositPerSecond;
+    private final long maxBalance;
+    private final AtomicLong balance;
+    private final AtomicLong lastRefillNanos = new AtomicLong(System.nanoTime());
+    private final Counter exhausted;
+
+    RetryBudget(String upstreamId, RetryBudgetProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.depositPerSuccess = (long) (properties.getRatio() * TOKEN);
+        this.depositPerSecond = (long) (properties.getMinRetriesPerSecond() * TOKEN);
+        this.maxBalance = (long) (properties.getMaxBalance() * TOKEN);
+        this.balance = new AtomicLong(depositPerSecond);
+        this.exhausted = Counter.builder("ddap.client.retry.budget.exhausted")
+                                .description("Retries skipped because the upstream's retry budget was exhausted")
+                                .tag("upstream", upstreamId)
+                                .register(Metrics.globalRegistry);
+        Gauge.builder("ddap.client.retry.budget.balance", balance, value -> (double) value.get() / TOKEN)
+             .description("Retries currently available against the upstream")
+             .tag("upstream", upstreamId)
+             .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * @param upstreamId identifies the upstream. Must not be null.
+     * @param properties settings for the budget. May be null, in which case defaults are used.
+     * @return the budget shared by all callers retrying requests against the given upstream. Never null.
+     */
+    public static RetryBudget forUpstream(String upstreamId, RetryBudgetProperties properties) {
+        return BUDGETS.computeIfAbsent(upstreamId, id -> new RetryBudget(id, properties == null
+                                                                               ? new RetryBudgetProperties()
+                                                                               : properties));
+    }
+
+    /**
+     * @return the budget already registered for the given upstream through {@link #forUpstream}. Never null.
+     * @throws IllegalStateException if no budget was registered for the upstream
+     */
+    public static RetryBudget get(String upstreamId) {
+        final RetryBudget budget = BUDGETS.get(upstreamId);
+        if (budget == null) {
+            throw new IllegalStateException("No retry budget registered for upstream " + upstreamId);
+        }
+        return budget;
+    }
+
+    public void recordSuccess() {
+        deposit(depositPerSuccess);
+    }
+
+    /**
+     * @return true if a retry may be sent, in which case its cost has been withdrawn from the budget
+     */
+    public boolean tryAcquireRetry() {
+        if (!enabled) {
+            return true;
+        }
+        refill();
+        while (true) {
+            final long current = balance.get();
+            if (current < TOKEN) {
+                exhausted.increment();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    private void refill() {
+        final long now = System.nanoTime();
+        final long last = lastRefillNanos.get();
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - last);
+        // Only one caller gets to deposit for a given interval
+        if (elapsedMillis > 0 && lastRefillNanos.compareAndSet(last, now)) {
+            deposit(depositPerSecond * elapsedMillis / 1000);
+        }
+    }
+
+    private void deposit(long amount) {
+        balance.accumulateAndGet(amount, (current, delta) -> Math.min(maxBalance, current + delta));
+    }
+
+}
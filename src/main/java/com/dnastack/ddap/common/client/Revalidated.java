@@ -0,0 +1,47 @@
+package com.dnastack.ddap.common.client;
+
+import lombok.Value;
+
+import java.util.function.Function;
+
+/**
+ * Outcome of a conditional catalog fetch: the fetched value, or none if the catalog did not change since the response
+ * the caller's {@link Validators} were taken from. Either way it carries the validators to send on the next fetch.
+ */
+@Value
+public class Revalidated<T> {
+
+    /**
+     * The fetched value, or null if it is unchanged.
+     */
+    T value;
+    Validators validators;
+
+    public static <T> Revalidated<T> changed(T value, Validators validators) {
+        return new Revalidated<>(value, validators);
+    }
+
+    public static <T> Revalidated<T> unchanged(Validators validators) {
+        return new Revalidated<>(null, validators);
+    }
+
+    public boolean isUnchanged() {
+        return value == null;
+    }
+
+    public <R> Revalidated<R> map(Function<? super T, ? extends R> mapper) {
+        return new Revalidated<>(value == null ? null : mapper.apply(value), validators);
+    }
+
+    /**
+     * What identifies one version of a catalog response: its {@code ETag} and {@code Last-Modified} headers, either of
+     * which may be null, and a hash of its body.
+     */
+    @Value
+    public static class Validators {
+        String etag;
+        String lastModified;
+        String contentHash;
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.dnastack.ddap.common.client;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Shares one in-flight call among all concurrent callers asking for the same key. The call starts when the first
+ * caller subscribes, and is cancelled only once every subscriber has cancelled. Once it completes, the next caller
+ * starts a new one: results are not cached.
+ * <p>
+ * Callers that join an in-flight call are counted as hits of {@code <metricName>}, and callers that start one as
+ * misses, tagged with the given tags and the operation.
+ *
+ * @param <K> the type of key identifying identical calls. Must implement {@code equals} and {@code hashCode}.
+ */
+public class SingleFlight<K> {
+
+    private final String metricName;
+    private final Tags tags;
+    private final ConcurrentMap<K, Mono<?>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param metricName name of the hit/miss counter
+     * @param tags       tag keys and values added to the counter, for example {@code "dam", damId}
+     */
+    public SingleFlight(String metricName, String... tags) {
+        this.metricName = metricName;
+        this.tags = Tags.of(tags);
+    }
+
+    /**
+     * @param operation name of the operation, used to tag the metrics
+     * @param key       identifies identical calls
+     * @param call      starts the call. Only invoked if no identical call is in flight.
+     * @return a {@link Mono} emitting the result of the shared call. Never null.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> execute(String operation, K key, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            final AtomicBoolean started = new AtomicBoolean();
+            final Mono<T> shared = (Mono<T>) inFlight.computeIfAbsent(key, k -> {
+                started.set(true);
+                return share(k, call.get());
+            });
+            Metrics.counter(metricName, tags.and("operation", operation, "result", started.get() ? "miss" : "hit"))
+                   .increment();
+            return shared;
+        });
+    }
+
+    /**
+     * @return the number of distinct calls currently in flight
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private <T> Mono<T> share(K key, Mono<T> call) {
+        final AtomicReference<Mono<T>> self = new AtomicReference<>();
+        // Removed before the result reaches subscribers, so that no caller can join a call that already finished
+        final Runnable remove = () -> inFlight.remove(key, self.get());
+        final Mono<T> shared = call.doOnTerminate(remove)
+                                   .doOnCancel(remove)
+                                   .flux()
+                                   .publish()
+                                   .refCount()
+                                   .singleOrEmpty();
+        self.set(shared);
+        return shared;
+    }
+
+}
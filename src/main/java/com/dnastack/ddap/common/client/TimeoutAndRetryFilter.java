@@ -0,0 +1,57 @@
+package com.dnastack.ddap.common.client;
+
+import org.springframework.cloud.gateway.support.TimeoutException;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/**
+ * Retries GET, HEAD and OPTIONS requests that time out, giving every attempt a longer timeout than the previous one.
+ * Timeouts are chosen by {@link AdaptiveTimeouts}, and a retry is only sent if the upstream's {@link RetryBudget}
+ * allows it.
+ */
+public class TimeoutAndRetryFilter implements ExchangeFilterFunction {
+
+    private final AdaptiveTimeouts timeouts;
+    private final RetryBudget retryBudget;
+
+    public TimeoutAndRetryFilter(AdaptiveTimeouts timeouts, RetryBudget retryBudget) {
+        this.timeouts = timeouts;
+        this.retryBudget = retryBudget;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        switch (request.method()) {
+            case GET:
+            case HEAD:
+            case OPTIONS:
+                return attempt(request, next, WebClientFactory.getOperation(request), 0);
+            default:
+                return next.exchange(request)
+                           .doOnNext(this::recordSuccess);
+        }
+    }
+
+    private void recordSuccess(ClientResponse response) {
+        if (response.rawStatusCode() < 500) {
+            retryBudget.recordSuccess();
+        }
+    }
+
+    private Mono<ClientResponse> attempt(ClientRequest request, ExchangeFunction next, String operation, int attempt) {
+        final Mono<ClientResponse> result = timeouts.timed(operation,
+                                                           timeouts.getAttemptTimeout(operation, attempt),
+                                                           next.exchange(request))
+                                                    .doOnNext(this::recordSuccess);
+        if (attempt + 1 >= AdaptiveTimeouts.MAX_ATTEMPTS) {
+            return result;
+        }
+        return result.onErrorResume(TimeoutException.class, ex -> retryBudget.tryAcquireRetry()
+                                                                  ? attempt(request, next, operation, attempt + 1)
+                                                                  : Mono.error(ex));
+    }
+
+}
@@ -1,50 +1,176 @@
 package com.dnastack.ddap.common.client;
 
+import com.dnastack.ddap.common.config.AdaptiveTimeoutProperties;
+import com.dnastack.ddap.common.config.CircuitBreakerProperties;
+import com.dnastack.ddap.common.config.ConnectionPoolProperties;
+import com.dnastack.ddap.common.config.HedgingProperties;
+import com.dnastack.ddap.common.config.RetryBudgetProperties;
+import com.dnastack.ddap.common.config.UpstreamProperties;
 import com.dnastack.ddap.common.util.logging.LoggingFilter;
-import org.springframework.cloud.gateway.support.TimeoutException;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
-import java.time.Duration;
-
-import static com.dnastack.ddap.common.util.TimeoutUtil.timeout;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Hands out long-lived {@link WebClient}s keyed by upstream (each DAM, the IdP, the IC). Every upstream gets its own
+ * Reactor Netty connection pool, so the clients are built once and shared by all callers. Per-request behaviour,
+ * such as refreshing an expired access token, is supplied through request attributes instead of a new client.
+ * <p>
+ * Pools publish their total/active/idle/pending connection gauges through Reactor Netty's Micrometer integration,
+ * and the time a request waits for a connection is recorded as {@code ddap.client.pool.acquire}.
+ * <p>
+ * Every upstream except the {@link #DEFAULT_UPSTREAM default} one, which covers unrelated hosts, is guarded by a
+ * {@link CircuitBreaker}.
+ * <p>
+ * Clients and the per-upstream state they use ({@link RetryBudget}, {@link CircuitBreaker}, {@link DecodeOffload})
+ * are registered once per upstream id, with the settings passed by the first caller; settings passed later are
+ * ignored. Each upstream is therefore registered from its properties at startup, DAMs by
+ * {@link com.dnastack.ddap.common.config.DamRouter} and the IdP and IC by
+ * {@link com.dnastack.ddap.ic.common.config.IcUpstreamsConfig}, and gateway routes only look up what is registered.
+ */
 public class WebClientFactory {
 
+    public static final String DEFAULT_UPSTREAM = "default";
+    public static final String IDP_UPSTREAM = "idp";
+    public static final String IC_UPSTREAM = "ic";
+
+    /**
+     * Request attribute naming the upstream operation, used to keep latency statistics per operation.
+     */
+    public static final String OPERATION_ATTRIBUTE = WebClientFactory.class.getName() + ".operation";
+
     private static final int MAX_IN_MEMORY_SIZE = 10 * 1024 * 1024; // 10MB
 
+    private static final ExchangeStrategies EXCHANGE_STRATEGIES = ExchangeStrategies.builder()
+        .codecs(configurer -> configurer
+            .defaultCodecs()
+            .maxInMemorySize(MAX_IN_MEMORY_SIZE))
+        .build();
+
+    private static final String ACQUIRE_START_KEY = WebClientFactory.class.getName() + ".acquireStart";
+
+    private static final ConcurrentMap<String, WebClient> CLIENTS = new ConcurrentHashMap<>();
+
+    /**
+     * @param damId the key of a DAM in the {@code dams} configuration map
+     * @return the upstream id under which the client for the given DAM is registered. Never null.
+     */
+    public static String damUpstream(String damId) {
+        return "dam-" + damId;
+    }
+
+    /**
+     * @return the operation set through {@link #OPERATION_ATTRIBUTE}, or the request method if none was set.
+     */
+    public static String getOperation(ClientRequest request) {
+        return request.attribute(OPERATION_ATTRIBUTE)
+                      .map(Object::toString)
+                      .orElseGet(() -> request.method().name());
+    }
+
+    /**
+     * @return a builder sharing the connection pool, codecs and filters of the default client. Clients built from it
+     * should be kept and reused rather than built per request.
+     */
     public static WebClient.Builder getWebClientBuilder() {
-        return WebClient.builder()
-            .exchangeStrategies(ExchangeStrategies.builder()
-                .codecs(configurer -> configurer
-                    .defaultCodecs()
-                    .maxInMemorySize(MAX_IN_MEMORY_SIZE))
-                .build())
-            .filter((request, next) -> {
-                switch (request.method()) {
-                    case GET:
-                    case HEAD:
-                    case OPTIONS:
-                        return timeout(next.exchange(request), Duration.ofSeconds(1))
-                            .onErrorResume(TimeoutException.class, ex -> timeout(next.exchange(request), Duration.ofSeconds(10)))
-                            .onErrorResume(TimeoutException.class, ex -> timeout(next.exchange(request), Duration.ofSeconds(30)))
-                            .onErrorResume(TimeoutException.class, ex -> timeout(next.exchange(request), Duration.ofSeconds(80)));
-                    default:
-                        return next.exchange(request);
-                }
-            })
-            .filter(LoggingFilter.logRequest())
-            .filter(LoggingFilter.logResponse());
+        return getWebClient().mutate();
     }
 
+    /**
+     * @return the shared client for calls that are not attributed to a particular upstream.
+     */
     public static WebClient getWebClient() {
-        return WebClientFactory.getWebClientBuilder()
-            .exchangeStrategies(ExchangeStrategies.builder()
-                .codecs(configurer -> configurer
-                    .defaultCodecs()
-                    .maxInMemorySize(MAX_IN_MEMORY_SIZE))
-                .build())
+        return getWebClient(DEFAULT_UPSTREAM);
+    }
+
+    /**
+     * @param upstreamId identifies the upstream service. Must not be null.
+     * @return the shared client for the given upstream, creating it and its connection pool on first use.
+     */
+    public static WebClient getWebClient(String upstreamId) {
+        return getWebClient(upstreamId, null);
+    }
+
+    /**
+     * @param upstreamId identifies the upstream service. Must not be null.
+     * @param properties settings for the upstream. May be null, in which case defaults are used.
+     * @return the shared client for the given upstream, creating it and its connection pool on first use.
+     */
+    public static WebClient getWebClient(String upstreamId, UpstreamProperties properties) {
+        return CLIENTS.computeIfAbsent(upstreamId, id -> createWebClient(id, properties));
+    }
+
+    private static WebClient createWebClient(String upstreamId, UpstreamProperties properties) {
+        final ConnectionPoolProperties pool = properties == null ? new ConnectionPoolProperties() : properties.getPool();
+        final HedgingProperties hedging = properties == null ? new HedgingProperties() : properties.getHedging();
+        final AdaptiveTimeouts timeouts = new AdaptiveTimeouts(upstreamId, properties == null
+                                                                           ? new AdaptiveTimeoutProperties()
+                                                                           : properties.getTimeouts());
+        final RetryBudget retryBudget = RetryBudget.forUpstream(upstreamId, properties == null
+                                                                            ? new RetryBudgetProperties()
+                                                                            : properties.getRetryBudget());
+        DecodeOffload.forUpstream(upstreamId, properties == null ? null : properties.getDecode());
+        final CircuitBreakerProperties circuitBreaker = properties == null
+                                                        ? new CircuitBreakerProperties()
+                                                        : properties.getCircuitBreaker();
+        final Timer acquireTimer = Timer.builder("ddap.client.pool.acquire")
+                                        .description("Time spent waiting for a connection to the upstream")
+                                        .tag("upstream", upstreamId)
+                                        .register(Metrics.globalRegistry);
+        final HttpClient httpClient = HttpClient.create(createConnectionProvider(upstreamId, pool))
+                                                .doOnRequest((request, connection) -> {
+                                                    final Long start = request.currentContext().getOrDefault(ACQUIRE_START_KEY, null);
+                                                    if (start != null) {
+                                                        acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                                                    }
+                                                });
+
+        final WebClient.Builder builder = WebClient.builder()
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .exchangeStrategies(EXCHANGE_STRATEGIES);
+        if (!DEFAULT_UPSTREAM.equals(upstreamId) && circuitBreaker.isEnabled()) {
+            builder.filter(new CircuitBreakerFilter(upstreamId, CircuitBreaker.forUpstream(upstreamId, circuitBreaker)));
+        }
+        return builder
+            .filter(hedging.isEnabled()
+                    ? new HedgingFilter(upstreamId, hedging, timeouts, retryBudget)
+                    : new TimeoutAndRetryFilter(timeouts, retryBudget))
+            .filter(LoggingFilter.logRequest())
+            .filter(LoggingFilter.logResponse())
+            // Innermost, so that every attempt is timed separately
+            .filter((request, next) -> next.exchange(request)
+                                           .subscriberContext(context -> context.put(ACQUIRE_START_KEY, System.nanoTime())))
             .build();
     }
 
+    private static ConnectionProvider createConnectionProvider(String upstreamId, ConnectionPoolProperties pool) {
+        final ConnectionProvider.Builder builder = ConnectionProvider.builder("ddap-" + upstreamId)
+                                                                     .metrics(true);
+        if (pool.getMaxConnections() != null) {
+            builder.maxConnections(pool.getMaxConnections());
+        }
+        if (pool.getPendingAcquireMaxCount() != null) {
+            builder.pendingAcquireMaxCount(pool.getPendingAcquireMaxCount());
+        }
+        if (pool.getPendingAcquireTimeout() != null) {
+            builder.pendingAcquireTimeout(pool.getPendingAcquireTimeout());
+        }
+        if (pool.getMaxIdleTime() != null) {
+            builder.maxIdleTime(pool.getMaxIdleTime());
+        }
+        if (pool.getMaxLifeTime() != null) {
+            builder.maxLifeTime(pool.getMaxLifeTime());
+        }
+        return builder.build();
+    }
+
 }
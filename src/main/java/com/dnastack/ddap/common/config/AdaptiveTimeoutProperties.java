@@ -0,0 +1,42 @@
+package com.dnastack.ddap.common.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Derives the timeout of idempotent calls from the latency observed per upstream and operation, instead of starting
+ * every call at the same fixed timeout.
+ */
+@Data
+public class AdaptiveTimeoutProperties {
+
+    /**
+     * When disabled, the first attempt always gets one second and retries follow the fixed ladder.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Observed latency percentile the first attempt's timeout is derived from.
+     */
+    private double percentile = 0.99;
+
+    /**
+     * Multiplier applied to the observed percentile.
+     */
+    private double factor = 2.0;
+
+    private Duration minTimeout = Duration.ofMillis(250);
+    private Duration maxTimeout = Duration.ofSeconds(80);
+
+    /**
+     * Number of samples to collect before observed latency replaces the default timeout.
+     */
+    private long minSamples = 100;
+
+    /**
+     * How often the latency distribution used for timeouts is refreshed.
+     */
+    private Duration window = Duration.ofMinutes(1);
+
+}
@@ -0,0 +1,47 @@
+package com.dnastack.ddap.common.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Caching of a DAM's resource catalog (resources and flattened views) per realm.
+ */
+@Data
+public class CatalogCacheProperties {
+
+    /**
+     * How long a cached catalog is served as fresh. Once expired, it is still served while one background refresh
+     * replaces it.
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+
+    /**
+     * How long an expired catalog may still be served while it cannot be refreshed. Entries older than this are
+     * dropped and loaded again by the next caller. Never shorter than {@link #ttl}.
+     */
+    private Duration maxStale = Duration.ofHours(1);
+
+    /**
+     * Upper bound on the serialized size, in bytes, of all cached catalogs of the DAM.
+     */
+    private long maxWeight = 64L * 1024 * 1024;
+
+    /**
+     * Keep cached resources and flattened views serialized in direct memory rather than on the heap, parsing entries
+     * as they are read. Counts towards {@link #maxWeight} with the size of the serialized entries.
+     */
+    private boolean offHeap = false;
+
+    /**
+     * Directory in which the cached catalogs of the DAM are periodically saved, and from which they are restored on
+     * startup. Snapshots older than {@link #maxStale} are ignored. Disabled when not set.
+     */
+    private String snapshotDirectory;
+
+    /**
+     * How often the cached catalogs are saved to {@link #snapshotDirectory}, if they changed since the last save.
+     */
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+
+}
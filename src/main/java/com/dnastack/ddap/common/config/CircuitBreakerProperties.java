@@ -0,0 +1,48 @@
+package com.dnastack.ddap.common.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Stops sending requests to an upstream that is failing or too slow, and fails them immediately instead, until a few
+ * probe requests show it has recovered.
+ */
+@Data
+public class CircuitBreakerProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Share of failed calls (between 0 and 1) within a {@link #window} at which the circuit opens. Calls fail when
+     * they end in an error or a 5xx response, or take longer than {@link #slowCallDuration}.
+     */
+    private double failureRateThreshold = 0.5;
+
+    /**
+     * Calls that take longer than this count as failures, even if they eventually succeed.
+     */
+    private Duration slowCallDuration = Duration.ofSeconds(30);
+
+    /**
+     * Number of calls that must complete within a {@link #window} before the failure rate is evaluated.
+     */
+    private int minimumCalls = 10;
+
+    /**
+     * Period over which the failure rate is measured.
+     */
+    private Duration window = Duration.ofMinutes(1);
+
+    /**
+     * How long the circuit stays open before probe requests are let through.
+     */
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    /**
+     * Number of probe requests let through while half-open. The circuit closes once all of them succeed and opens
+     * again as soon as one fails.
+     */
+    private int halfOpenProbes = 3;
+
+}
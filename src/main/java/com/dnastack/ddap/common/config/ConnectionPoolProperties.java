@@ -0,0 +1,38 @@
+package com.dnastack.ddap.common.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Sizing of the outbound connection pool to a single upstream. Unset values keep the Reactor Netty defaults.
+ */
+@Data
+public class ConnectionPoolProperties {
+
+    /**
+     * Maximum number of open connections to the upstream.
+     */
+    private Integer maxConnections;
+
+    /**
+     * Maximum number of requests allowed to wait for a connection once the pool is exhausted.
+     */
+    private Integer pendingAcquireMaxCount;
+
+    /**
+     * How long a request may wait for a connection before failing.
+     */
+    private Duration pendingAcquireTimeout;
+
+    /**
+     * Connections idle for longer than this are closed instead of being reused.
+     */
+    private Duration maxIdleTime;
+
+    /**
+     * Connections older than this are closed instead of being reused.
+     */
+    private Duration maxLifeTime;
+
+}
@@ -5,11 +5,18 @@ import lombok.Data;
 import java.net.URI;
 
 @Data
-public class DamProperties {
+public class DamProperties implements UpstreamProperties {
 
     private URI baseUrl;
     private String clientId;
     private String clientSecret;
     private String uiUrl;
+    private ConnectionPoolProperties pool = new ConnectionPoolProperties();
+    private HedgingProperties hedging = new HedgingProperties();
+    private AdaptiveTimeoutProperties timeouts = new AdaptiveTimeoutProperties();
+    private RetryBudgetProperties retryBudget = new RetryBudgetProperties();
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+    private DecodeProperties decode = new DecodeProperties();
+    private CatalogCacheProperties catalogCache = new CatalogCacheProperties();
 
 }
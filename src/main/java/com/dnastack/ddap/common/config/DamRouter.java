@@ -1,8 +1,13 @@
 package com.dnastack.ddap.common.config;
 
+import com.dnastack.ddap.common.client.CircuitBreaker;
+import com.dnastack.ddap.common.client.RetryBudget;
+import com.dnastack.ddap.common.client.WebClientFactory;
+import com.dnastack.ddap.common.proxy.DamAvailabilityGatewayFilterFactory;
 import com.dnastack.ddap.common.proxy.LoggingGatewayFilterFactory;
 import com.dnastack.ddap.common.proxy.SetBearerTokenFromCookieGatewayFilterFactory;
 import com.dnastack.ddap.common.proxy.TimeoutAndRetryGatewayFilterFactory;
+import com.dnastack.ddap.common.proxy.UpstreamCircuitBreakerGatewayFilterFactory;
 import com.dnastack.ddap.common.security.UserTokenCookiePackager;
 import com.dnastack.ddap.common.security.UserTokenCookiePackager.TokenKind;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +33,12 @@ public class DamRouter {
     @Autowired
     private TimeoutAndRetryGatewayFilterFactory timeoutAndRetryFilterFactory;
 
+    @Autowired
+    private DamAvailabilityGatewayFilterFactory availabilityFilterFactory;
+
+    @Autowired
+    private UpstreamCircuitBreakerGatewayFilterFactory circuitBreakerFilterFactory;
+
     @Autowired
     private LoggingGatewayFilterFactory loggingFilterFactory;
 
@@ -36,15 +47,6 @@ public class DamRouter {
 
     @Bean
     public RouteLocator damRoutes(RouteLocatorBuilder builder) {
-        // TODO: DISCO-2347 read from config
-        final TimeoutAndRetryGatewayFilterFactory.RetryConfig timeoutAndRetryConfig = new TimeoutAndRetryGatewayFilterFactory.RetryConfig();
-        timeoutAndRetryConfig.setRetries(2);
-        timeoutAndRetryConfig.setMinimumTimeout(1000);
-        timeoutAndRetryConfig.setMaximumTimeout(20000);
-        timeoutAndRetryConfig.setTimeoutExponentialScalingBase(10);
-
-        final GatewayFilter timeoutAndRetryFilter = timeoutAndRetryFilterFactory.apply(timeoutAndRetryConfig);
-
         final GatewayFilter loggingFilter = loggingFilterFactory.apply(new Object());
 
         final SetBearerTokenFromCookieGatewayFilterFactory.Config bearerTokenConfig = new SetBearerTokenFromCookieGatewayFilterFactory.Config();
@@ -56,11 +58,16 @@ public class DamRouter {
         for (Map.Entry<String, DamProperties> entry : dams.entrySet()) {
             final String id = entry.getKey();
             final DamProperties dam = entry.getValue();
+            final GatewayFilter availabilityFilter = availabilityFilter(id);
+            final GatewayFilter circuitBreakerFilter = circuitBreakerFilter(id, dam);
+            final GatewayFilter timeoutAndRetryFilter = timeoutAndRetryFilter(id, dam);
             routesBuilder =
                     routesBuilder
                             .route(id,
                                    r -> r.path(format("/dam/%s/**", id))
-                                         .filters(f -> f.filter(timeoutAndRetryFilter)
+                                         .filters(f -> f.filter(availabilityFilter)
+                                                        .filter(circuitBreakerFilter)
+                                                        .filter(timeoutAndRetryFilter)
                                                         .filter(loggingFilter)
                                                         .rewritePath("^/dam/[^/]+/", "/dam/")
                                                         .addRequestParameter("clientId",
@@ -75,4 +82,45 @@ public class DamRouter {
         return routesBuilder.build();
     }
 
+    /*
+     * Requests to a DAM that failed its recent health polls are rejected right away.
+     */
+    private GatewayFilter availabilityFilter(String damId) {
+        final DamAvailabilityGatewayFilterFactory.Config availabilityConfig = new DamAvailabilityGatewayFilterFactory.Config();
+        availabilityConfig.setDamId(damId);
+
+        return availabilityFilterFactory.apply(availabilityConfig);
+    }
+
+    /*
+     * Proxied requests share the circuit breaker of the DAM client.
+     */
+    private GatewayFilter circuitBreakerFilter(String damId, DamProperties dam) {
+        final String upstreamId = WebClientFactory.damUpstream(damId);
+        CircuitBreaker.forUpstream(upstreamId, dam.getCircuitBreaker());
+
+        final UpstreamCircuitBreakerGatewayFilterFactory.Config circuitBreakerConfig = new UpstreamCircuitBreakerGatewayFilterFactory.Config();
+        circuitBreakerConfig.setUpstream(upstreamId);
+
+        return circuitBreakerFilterFactory.apply(circuitBreakerConfig);
+    }
+
+    /*
+     * Proxied requests draw on the same retry budget as the DAM client's own requests.
+     */
+    private GatewayFilter timeoutAndRetryFilter(String damId, DamProperties dam) {
+        final String upstreamId = WebClientFactory.damUpstream(damId);
+        RetryBudget.forUpstream(upstreamId, dam.getRetryBudget());
+
+        // TODO: DISCO-2347 read from config
+        final TimeoutAndRetryGatewayFilterFactory.RetryConfig timeoutAndRetryConfig = new TimeoutAndRetryGatewayFilterFactory.RetryConfig();
+        timeoutAndRetryConfig.setRetries(2);
+        timeoutAndRetryConfig.setMinimumTimeout(1000);
+        timeoutAndRetryConfig.setMaximumTimeout(20000);
+        timeoutAndRetryConfig.setTimeoutExponentialScalingBase(10);
+        timeoutAndRetryConfig.setRetryBudget(upstreamId);
+
+        return timeoutAndRetryFilterFactory.apply(timeoutAndRetryConfig);
+    }
+
 }
@@ -0,0 +1,20 @@
+package com.dnastack.ddap.common.config;
+
+import lombok.Data;
+
+/**
+ * Decoding of upstream response bodies. Small bodies are decoded on the Netty event loop that received them, large
+ * ones on a separate scheduler, so that one big catalog does not stall every other connection sharing the loop.
+ */
+@Data
+public class DecodeProperties {
+
+    private boolean offloadEnabled = true;
+
+    /**
+     * Bodies with a {@code Content-Length} above this many bytes are decoded off the event loop. Bodies of unknown
+     * length (chunked transfer encoding) are assumed to be large.
+     */
+    private long offloadThreshold = 256L * 1024;
+
+}
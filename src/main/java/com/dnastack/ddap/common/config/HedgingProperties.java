@@ -0,0 +1,35 @@
+package com.dnastack.ddap.common.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Hedged requests for idempotent calls: instead of waiting for an attempt to time out before retrying, further
+ * attempts are started while the first is still in flight and the first response wins.
+ */
+@Data
+public class HedgingProperties {
+
+    /**
+     * When disabled, idempotent requests use the sequential timeout and retry ladder.
+     */
+    private boolean enabled = false;
+
+    /**
+     * How long to wait for a response before starting the next attempt. Ideally close to the upstream's p95 latency.
+     */
+    private Duration delay = Duration.ofMillis(500);
+
+    /**
+     * When set (between 0 and 1, for example 0.95), the observed latency at this percentile is used as the delay once
+     * enough samples have been collected, falling back to {@link #delay} until then.
+     */
+    private Double delayPercentile;
+
+    /**
+     * Total number of attempts, including the first. At most 3.
+     */
+    private int maxAttempts = 2;
+
+}
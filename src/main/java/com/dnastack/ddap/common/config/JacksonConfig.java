@@ -4,6 +4,9 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
 import com.google.protobuf.Message;
 import com.google.protobuf.util.JsonFormat;
 import lombok.extern.slf4j.Slf4j;
@@ -15,7 +18,9 @@ import org.springframework.http.converter.protobuf.ProtobufJsonFormatHttpMessage
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
+import java.util.Base64;
 import java.util.List;
+import java.util.Set;
 
 @Slf4j
 @Configuration
@@ -42,16 +47,168 @@ public class JacksonConfig {
         };
     }
 
+    /**
+     * Writes protobuf messages straight into the {@link JsonGenerator}, producing the same JSON as
+     * {@link JsonFormat#printer()} without building an intermediate String: fields are named by their
+     * {@code json_name}, and fields holding their default value are left out, like every other property under the
+     * {@link JsonInclude.Include#NON_EMPTY} inclusion configured above. Well-known types with a special JSON mapping
+     * ({@code Timestamp}, {@code Struct}, wrappers, ...) are rare in our responses and are still printed by a shared
+     * {@link JsonFormat.Printer}.
+     */
     public static class Protobuf2JsonSerializer extends JsonSerializer<Message> {
 
+        private static final JsonFormat.Printer PRINTER = JsonFormat.printer();
+
+        private static final Set<String> WELL_KNOWN_TYPES = Set.of("google.protobuf.Any",
+                                                                   "google.protobuf.Timestamp",
+                                                                   "google.protobuf.Duration",
+                                                                   "google.protobuf.FieldMask",
+                                                                   "google.protobuf.Struct",
+                                                                   "google.protobuf.Value",
+                                                                   "google.protobuf.ListValue",
+                                                                   "google.protobuf.DoubleValue",
+                                                                   "google.protobuf.FloatValue",
+                                                                   "google.protobuf.Int64Value",
+                                                                   "google.protobuf.UInt64Value",
+                                                                   "google.protobuf.Int32Value",
+                                                                   "google.protobuf.UInt32Value",
+                                                                   "google.protobuf.BoolValue",
+                                                                   "google.protobuf.StringValue",
+                                                                   "google.protobuf.BytesValue");
+
         @Override
         public void serialize(Message message, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-            gen.writeRawValue(JsonFormat.printer().print(message));
+            writeMessage(message, gen);
         }
 
         @Override
         public Class<Message> handledType() {
             return Message.class;
         }
+
+        private static void writeMessage(Message message, JsonGenerator gen) throws IOException {
+            if (WELL_KNOWN_TYPES.contains(message.getDescriptorForType().getFullName())) {
+                gen.writeRawValue(PRINTER.print(message));
+                return;
+            }
+
+            gen.writeStartObject();
+            for (FieldDescriptor field : message.getDescriptorForType().getFields()) {
+                if (field.isRepeated()) {
+                    final List<?> values = (List<?>) message.getField(field);
+                    if (values.isEmpty()) {
+                        continue;
+                    }
+                    gen.writeFieldName(field.getJsonName());
+                    if (field.isMapField()) {
+                        writeMap(field, values, gen);
+                    } else {
+                        gen.writeStartArray();
+                        for (Object value : values) {
+                            writeValue(field, value, gen);
+                        }
+                        gen.writeEndArray();
+                    }
+                } else if (message.hasField(field)) {
+                    gen.writeFieldName(field.getJsonName());
+                    writeValue(field, message.getField(field), gen);
+                }
+            }
+            gen.writeEndObject();
+        }
+
+        private static void writeMap(FieldDescriptor field, List<?> entries, JsonGenerator gen) throws IOException {
+            final FieldDescriptor keyField = field.getMessageType().findFieldByNumber(1);
+            final FieldDescriptor valueField = field.getMessageType().findFieldByNumber(2);
+            gen.writeStartObject();
+            for (Object entry : entries) {
+                final Message entryMessage = (Message) entry;
+                gen.writeFieldName(mapKey(keyField, entryMessage.getField(keyField)));
+                writeValue(valueField, entryMessage.getField(valueField), gen);
+            }
+            gen.writeEndObject();
+        }
+
+        private static String mapKey(FieldDescriptor keyField, Object key) {
+            switch (keyField.getType()) {
+                case UINT32:
+                case FIXED32:
+                    return Integer.toUnsignedString((Integer) key);
+                case UINT64:
+                case FIXED64:
+                    return Long.toUnsignedString((Long) key);
+                default:
+                    return key.toString();
+            }
+        }
+
+        private static void writeValue(FieldDescriptor field, Object value, JsonGenerator gen) throws IOException {
+            switch (field.getType()) {
+                case INT32:
+                case SINT32:
+                case SFIXED32:
+                    gen.writeNumber((Integer) value);
+                    break;
+                case UINT32:
+                case FIXED32:
+                    gen.writeNumber(Integer.toUnsignedLong((Integer) value));
+                    break;
+                case INT64:
+                case SINT64:
+                case SFIXED64:
+                    // Quoted, as JavaScript numbers cannot hold every 64-bit integer
+                    gen.writeString(value.toString());
+                    break;
+                case UINT64:
+                case FIXED64:
+                    gen.writeString(Long.toUnsignedString((Long) value));
+                    break;
+                case FLOAT:
+                    final float floatValue = (Float) value;
+                    if (Float.isFinite(floatValue)) {
+                        gen.writeNumber(floatValue);
+                    } else {
+                        gen.writeString(value.toString());
+                    }
+                    break;
+                case DOUBLE:
+                    final double doubleValue = (Double) value;
+                    if (Double.isFinite(doubleValue)) {
+                        gen.writeNumber(doubleValue);
+                    } else {
+                        gen.writeString(value.toString());
+                    }
+                    break;
+                case BOOL:
+                    gen.writeBoolean((Boolean) value);
+                    break;
+                case STRING:
+                    gen.writeString((String) value);
+                    break;
+                case BYTES:
+                    gen.writeString(Base64.getEncoder().encodeToString(((ByteString) value).toByteArray()));
+                    break;
+                case ENUM:
+                    writeEnum((EnumValueDescriptor) value, gen);
+                    break;
+                case MESSAGE:
+                case GROUP:
+                    writeMessage((Message) value, gen);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported field type: " + field.getType());
+            }
+        }
+
+        private static void writeEnum(EnumValueDescriptor value, JsonGenerator gen) throws IOException {
+            if ("google.protobuf.NullValue".equals(value.getType().getFullName())) {
+                gen.writeNull();
+            } else if (value.getIndex() == -1) {
+                // Value unknown to our copy of the proto
+                gen.writeNumber(value.getNumber());
+            } else {
+                gen.writeString(value.getName());
+            }
+        }
     }
 }
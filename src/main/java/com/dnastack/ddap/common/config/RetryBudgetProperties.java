@@ -0,0 +1,29 @@
+package com.dnastack.ddap.common.config;
+
+import lombok.Data;
+
+/**
+ * Limits retries against an upstream to a share of its recent successful requests, so that a degraded upstream is
+ * not hit with a multiple of its normal load.
+ */
+@Data
+public class RetryBudgetProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Retries allowed per successful request.
+     */
+    private double ratio = 0.1;
+
+    /**
+     * Retries allowed per second regardless of traffic, so that retries still work on a quiet upstream.
+     */
+    private double minRetriesPerSecond = 10;
+
+    /**
+     * Upper bound on accumulated retries, limiting how much a burst of retries may draw on past successes.
+     */
+    private double maxBalance = 100;
+
+}
@@ -0,0 +1,260 @@
+package com.dnastack.ddap.common.config;
+
+import com.dnastack.ddap.common.catalog.FlatViewCatalog;
+import com.dnastack.ddap.common.client.ProtobufJsonStreamDecoder;
+import com.dnastack.ddap.common.client.ReactiveDamClient;
+import com.dnastack.ddap.common.client.WebClientFactory;
+import com.dnastack.ddap.common.security.PlainTextNotDecryptableException;
+import com.dnastack.ddap.common.security.UserTokenCookiePackager;
+import com.dnastack.ddap.ic.common.config.IcProperties;
+import com.dnastack.ddap.ic.common.config.IdpProperties;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.util.JsonFormat;
+import dam.v1.DamService.GetFlatViewsResponse;
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.util.UriTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms DDAP up after the context is refreshed and before the application is reported ready for traffic, so that the
+ * first users after a restart don't pay for it: opens connections to every upstream, prefetches each DAM's info and
+ * the catalogs (and flat view indexes) of the configured realms, and runs the cookie codec and protobuf decoders
+ * enough times to get them compiled.
+ * <p>
+ * Only runs with {@code ddap.warm-up.enabled=true}. Failing steps are logged and skipped. The whole warm-up is bounded
+ * by {@link WarmUpProperties#getTimeout()}, after which the upstream calls still running are cancelled. Each
+ * step's duration is logged and recorded as {@code ddap.warmup}, tagged with the {@code step} ({@code total} for the
+ * whole warm-up) and its {@code outcome}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ddap.warm-up.enabled", havingValue = "true")
+@EnableConfigurationProperties(WarmUpProperties.class)
+public class StartupWarmUp implements ApplicationRunner {
+
+    private static final String OPERATION = "warmUp";
+
+    private final WarmUpProperties properties;
+    private final String defaultRealm;
+    private final Map<String, DamProperties> dams;
+    private final Map<String, ReactiveDamClient> damClients;
+    private final FlatViewCatalog flatViewCatalog;
+    private final UserTokenCookiePackager cookiePackager;
+    private final ObjectProvider<IcProperties> icProperties;
+    private final ObjectProvider<IdpProperties> idpProperties;
+
+    @Autowired
+    public StartupWarmUp(WarmUpProperties properties,
+                         @Value("${ddap.default-realm}") String defaultRealm,
+                         @Qualifier("dams") Map<String, DamProperties> dams,
+                         Map<String, ReactiveDamClient> damClients,
+                         FlatViewCatalog flatViewCatalog,
+                         UserTokenCookiePackager cookiePackager,
+                         ObjectProvider<IcProperties> icProperties,
+                         ObjectProvider<IdpProperties> idpProperties) {
+        this.properties = properties;
+        this.defaultRealm = defaultRealm;
+        this.dams = dams;
+        this.damClients = damClients;
+        this.flatViewCatalog = flatViewCatalog;
+        this.cookiePackager = cookiePackager;
+        this.icProperties = icProperties;
+        this.idpProperties = idpProperties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        final List<String> realms = properties.getRealms().isEmpty() ? List.of(defaultRealm) : properties.getRealms();
+        log.info("Warming up {} DAMs for realms {}", dams.size(), realms);
+        final long start = System.nanoTime();
+
+        // Upstream calls run in the background while the local code paths are exercised on this thread
+        final CountDownLatch upstreamsDone = new CountDownLatch(1);
+        final Disposable upstreams = step("connections", openConnections(realms.get(0)))
+            .then(Mono.when(step("dam-info", fetchDamInfo()), step("catalogs", fetchCatalogs(realms))))
+            .doFinally(signal -> upstreamsDone.countDown())
+            .subscribe();
+
+        step("cookie-codec", Mono.fromRunnable(this::exerciseCookieCodec)).block();
+        step("protobuf-decode", Mono.fromRunnable(this::exerciseProtobufDecoders)).block();
+
+        final Duration remaining = properties.getTimeout().minusNanos(System.nanoTime() - start);
+        String outcome = "success";
+        try {
+            if (!upstreamsDone.await(Math.max(0, remaining.toNanos()), TimeUnit.NANOSECONDS)) {
+                outcome = "timeout";
+                log.warn("Warm-up did not finish within {}", properties.getTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+        } finally {
+            upstreams.dispose();
+        }
+        final long elapsed = System.nanoTime() - start;
+        timer("total", outcome).record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private Mono<Void> openConnections(String realm) {
+        final List<Mono<Void>> connections = new ArrayList<>();
+        dams.forEach((damId, dam) -> connections.add(connect(WebClientFactory.damUpstream(damId),
+                                                             dam,
+                                                             dam.getBaseUrl())));
+        final IcProperties ic = icProperties.getIfAvailable();
+        if (ic != null && ic.getBaseUrl() != null) {
+            connections.add(connect(WebClientFactory.IC_UPSTREAM, ic, ic.getBaseUrl()));
+        }
+        final IdpProperties idp = idpProperties.getIfAvailable();
+        if (idp != null && idp.getTokenUrl() != null) {
+            final URI tokenUrl = new UriTemplate(idp.getTokenUrl()).expand(realm);
+            connections.add(connect(WebClientFactory.IDP_UPSTREAM, idp, tokenUrl));
+        }
+        return Mono.when(connections);
+    }
+
+    /*
+     * Sends concurrent HEAD requests, so that the upstream's pool ends up with that many established connections. Any
+     * response will do.
+     */
+    private Mono<Void> connect(String upstreamId, UpstreamProperties upstream, URI uri) {
+        return Flux.range(0, properties.getConnections())
+                   .flatMap(i -> WebClientFactory.getWebClient(upstreamId, upstream)
+                                                 .head()
+                                                 .uri(uri)
+                                                 .attribute(WebClientFactory.OPERATION_ATTRIBUTE, OPERATION)
+                                                 .exchange()
+                                                 .flatMap(ClientResponse::releaseBody))
+                   .then()
+                   .onErrorResume(e -> {
+                       log.warn("Could not connect to {} during warm-up: {}", upstreamId, e.toString());
+                       return Mono.empty();
+                   });
+    }
+
+    private Mono<Void> fetchDamInfo() {
+        return Flux.fromIterable(damClients.entrySet())
+                   .flatMap(e -> e.getValue()
+                                  .getDamInfo()
+                                  .onErrorResume(error -> skip(e.getKey(), "info", error)))
+                   .then();
+    }
+
+    private Mono<Void> fetchCatalogs(List<String> realms) {
+        return Flux.fromIterable(damClients.entrySet())
+                   .flatMap(e -> Flux.fromIterable(realms)
+                                     .flatMap(realm -> Mono.when(
+                                         e.getValue()
+                                          .getResources(realm)
+                                          .onErrorResume(error -> skip(e.getKey(), "resources of " + realm, error)),
+                                         flatViewCatalog.getIndex(e.getKey(), realm)
+                                                        .onErrorResume(error -> skip(e.getKey(),
+                                                                                     "flat views of " + realm,
+                                                                                     error)))))
+                   .then();
+    }
+
+    private static <T> Mono<T> skip(String damId, String what, Throwable error) {
+        log.warn("Could not prefetch {} of DAM {} during warm-up: {}", what, damId, error.toString());
+        return Mono.empty();
+    }
+
+    private void exerciseCookieCodec() {
+        final String token = "eyJhbGciOiJSUzI1NiJ9." + "x".repeat(600) + ".signature";
+        for (int i = 0; i < properties.getIterations(); i++) {
+            try {
+                cookiePackager.decodeToken(cookiePackager.encodeToken(token));
+            } catch (PlainTextNotDecryptableException e) {
+                throw new IllegalStateException("Cookie codec does not round trip", e);
+            }
+        }
+    }
+
+    private void exerciseProtobufDecoders() {
+        final GetFlatViewsResponse.Builder sample = GetFlatViewsResponse.newBuilder();
+        for (int i = 0; i < 20; i++) {
+            final String path = "/warm-up/resources/resource-" + i + "/views/view/roles/viewer/interfaces/http:gcp:gs";
+            sample.putViews(path, FlatView.newBuilder()
+                                          .setResourcePath(path)
+                                          .setResourceName("resource-" + i)
+                                          .setViewName("view")
+                                          .setRoleName("viewer")
+                                          .setInterfaceName("http:gcp:gs")
+                                          .setContentType("application/bam")
+                                          .putLabels("version", "1")
+                                          .putResourceUi("label", "Resource " + i)
+                                          .addRoleCategories("list")
+                                          .build());
+        }
+        final byte[] binary = sample.build().toByteArray();
+        final byte[] json;
+        try {
+            json = JsonFormat.printer().print(sample).getBytes(StandardCharsets.UTF_8);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+        for (int i = 0; i < properties.getIterations(); i++) {
+            ProtobufJsonStreamDecoder.decode(Flux.just(bufferFactory.wrap(json)),
+                                             GetFlatViewsResponse.getDefaultInstance())
+                                     .block();
+            try {
+                GetFlatViewsResponse.parseFrom(binary);
+            } catch (InvalidProtocolBufferException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private Mono<Void> step(String name, Mono<?> work) {
+        return Mono.defer(() -> {
+            final long start = System.nanoTime();
+            return work.then()
+                       .doOnSuccess(ignored -> done(name, "success", start))
+                       .onErrorResume(e -> {
+                           log.warn("Warm-up step {} failed: {}", name, e.toString());
+                           done(name, "failure", start);
+                           return Mono.empty();
+                       });
+        });
+    }
+
+    private static void done(String step, String outcome, long start) {
+        final long elapsed = System.nanoTime() - start;
+        timer(step, outcome).record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Warm-up step {} took {} ms", step, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private static Timer timer(String step, String outcome) {
+        return Timer.builder("ddap.warmup")
+                    .description("Duration of the startup warm-up and its steps")
+                    .tags("step", step, "outcome", outcome)
+                    .register(Metrics.globalRegistry);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.dnastack.ddap.common.config;
+
+/**
+ * Settings shared by every upstream service DDAP calls out to (DAMs, the IdP, the IC).
+ */
+public interface UpstreamProperties {
+
+    ConnectionPoolProperties getPool();
+
+    HedgingProperties getHedging();
+
+    AdaptiveTimeoutProperties getTimeouts();
+
+    RetryBudgetProperties getRetryBudget();
+
+    CircuitBreakerProperties getCircuitBreaker();
+
+    DecodeProperties getDecode();
+
+}
@@ -0,0 +1,42 @@
+package com.dnastack.ddap.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Warm-up run at startup, before the application reports itself ready for traffic.
+ */
+@Data
+@ConfigurationProperties(prefix = "ddap.warm-up")
+public class WarmUpProperties {
+
+    /**
+     * Whether the warm-up runs at all. When false, neither the warm-up nor these properties are registered.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Realms whose DAM catalogs are prefetched. The default realm if empty.
+     */
+    private List<String> realms = new ArrayList<>();
+
+    /**
+     * Connections opened ahead of time to each upstream (every DAM, the IdP, the IC).
+     */
+    private int connections = 2;
+
+    /**
+     * How many times the cookie codec and the protobuf decoders are run, to get them compiled before the first user.
+     */
+    private int iterations = 500;
+
+    /**
+     * Upper bound on the whole warm-up. Steps still running are abandoned, and the application becomes ready anyway.
+     */
+    private Duration timeout = Duration.ofSeconds(30);
+
+}
@@ -12,4 +12,13 @@ public class DamInfo {
     private String label;
     private String url;
     private String uiUrl;
+
+    /**
+     * False if the DAM could not be reached in time, in which case {@link #label} is its id.
+     */
+    private boolean available = true;
+
+    public DamInfo(String id, String label, String url, String uiUrl) {
+        this(id, label, url, uiUrl, true);
+    }
 }
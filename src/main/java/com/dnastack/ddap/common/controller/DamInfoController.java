@@ -1,10 +1,14 @@
 package com.dnastack.ddap.common.controller;
 
-import com.dnastack.ddap.common.client.ReactiveDamClient;
+import com.dnastack.ddap.common.client.DamRegistry;
 import com.dnastack.ddap.common.config.DamProperties;
 import com.dnastack.ddap.common.util.http.UriUtil;
+import dam.v1.DamService;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -15,44 +19,81 @@ import reactor.core.publisher.Mono;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Lists the configured DAMs with their labels, as last polled by the {@link DamRegistry}. DAMs that are down are
+ * still listed, as not {@link DamInfo#isAvailable() available}, with their last known label.
+ * <p>
+ * Clients accepting {@code text/event-stream} or {@code application/stream+json} get each DAM as soon as it is known,
+ * which only makes a difference before the registry's first poll of every DAM completed.
+ * <p>
+ * The time until the first DAM is known is recorded as {@code ddap.dam.info.first}, tagged with {@code mode} of
+ * {@code map} or {@code stream}.
+ */
 @RestController
 @RequestMapping("/api/v1alpha/realm/{realm}/dam")
 public class DamInfoController {
 
-    private Map<String, ReactiveDamClient> damClients;
+    private final DamRegistry damRegistry;
     private final Map<String, DamProperties> damPropertiesMap;
 
     @Autowired
-    public DamInfoController(Map<String, ReactiveDamClient> damClients,
+    public DamInfoController(DamRegistry damRegistry,
                              @Qualifier("dams") Map<String, DamProperties> damPropertiesMap) {
-        this.damClients = damClients;
+        this.damRegistry = damRegistry;
         this.damPropertiesMap = damPropertiesMap;
     }
 
     @GetMapping
     public Mono<DamsInfo> getDamInfo(ServerHttpRequest request, @PathVariable String realm) {
-        return Flux.fromStream(damClients.entrySet().stream())
-                   .flatMap(e -> {
-                       final String damId = e.getKey();
-                       final ReactiveDamClient damClient = e.getValue();
-                       final String damUiUrl = damPropertiesMap.get(damId).getUiUrl();
-                       return damClient.getDamInfo()
-                                       .map(damInfoResponse -> {
-
-                                           final String url = UriUtil.selfLinkToDam(request, damId)
-                                                                     .toString();
-                                           final String label = Optional.ofNullable(damInfoResponse.getUiMap())
-                                                                        .map(ui -> ui.get("label"))
-                                                                        // If you use orElseGet here you will run into a compilation error on Java 11
-                                                                        // Issue is not present using Java 12
-                                                                        .orElse(damInfoResponse.getName());
-                                           return new DamInfo(damId, label, url, damUiUrl);
-                                       });
-                   })
+        return damInfos(request, "map")
                    .collect(Collectors.toMap(DamInfo::getId, Function.identity()))
                    .map(DamsInfo::new);
     }
+
+    @GetMapping(produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+    public Flux<DamInfo> streamDamInfo(ServerHttpRequest request, @PathVariable String realm) {
+        return damInfos(request, "stream");
+    }
+
+    private Flux<DamInfo> damInfos(ServerHttpRequest request, String mode) {
+        return Flux.defer(() -> {
+            final long start = System.nanoTime();
+            final AtomicBoolean first = new AtomicBoolean(true);
+            return Flux.fromIterable(damRegistry.getDamIds())
+                       .flatMap(damId -> damInfo(request, damId))
+                       .doOnNext(damInfo -> {
+                           if (first.getAndSet(false)) {
+                               Timer.builder("ddap.dam.info.first")
+                                    .description("Time until the info of the first DAM is known")
+                                    .tag("mode", mode)
+                                    .register(Metrics.globalRegistry)
+                                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                           }
+                       });
+        });
+    }
+
+    private Mono<DamInfo> damInfo(ServerHttpRequest request, String damId) {
+        final String url = UriUtil.selfLinkToDam(request, damId)
+                                  .toString();
+        final String damUiUrl = damPropertiesMap.get(damId).getUiUrl();
+        return damRegistry.getStatus(damId)
+                          .map(status -> {
+                              final DamService.GetInfoResponse damInfoResponse = status.getInfo();
+                              if (damInfoResponse == null) {
+                                  return new DamInfo(damId, damId, url, damUiUrl, false);
+                              }
+                              final String label = Optional.ofNullable(damInfoResponse.getUiMap())
+                                                           .map(ui -> ui.get("label"))
+                                                           // If you use orElseGet here you will run into a compilation error on Java 11
+                                                           // Issue is not present using Java 12
+                                                           .orElse(damInfoResponse.getName());
+                              return new DamInfo(damId, label, url, damUiUrl, status.isAvailable());
+                          });
+    }
 }
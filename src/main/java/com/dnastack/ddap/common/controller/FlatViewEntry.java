@@ -0,0 +1,18 @@
+package com.dnastack.ddap.common.controller;
+
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FlatViewEntry {
+    private String resourcePath;
+    private FlatView view;
+    /**
+     * Continues after this view when passed as {@code pageToken}.
+     */
+    private String pageToken;
+}
@@ -0,0 +1,149 @@
+package com.dnastack.ddap.common.controller;
+
+import com.dnastack.ddap.common.catalog.FieldProjection;
+import com.dnastack.ddap.common.catalog.FlatViewCatalog;
+import com.dnastack.ddap.common.catalog.FlatViewIndex;
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Filters and pages through the flattened views of a DAM, so that the UI does not need to download all of them.
+ * Every query parameter other than {@code pageSize}, {@code pageToken} and {@code fields} is a filter on one of the
+ * {@link FlatViewIndex} fields, for example {@code ?contentType=application/bam&label.topic=variants}. Repeating a
+ * parameter matches any of its values. {@code fields} limits the returned views to the given fields, see
+ * {@link FieldProjection}.
+ * <p>
+ * Clients accepting {@code text/event-stream} or {@code application/stream+json} get the matching views streamed one
+ * by one instead of a page, each materialised only when the client is ready for it.
+ */
+@RestController
+@RequestMapping("/api/v1alpha/realm/{realm}/dam/{damId}/flat-views")
+public class FlatViewQueryController {
+
+    private static final String PAGE_SIZE = "pageSize";
+    private static final String PAGE_TOKEN = "pageToken";
+    private static final String FIELDS = "fields";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final FlatViewCatalog catalog;
+
+    @Autowired
+    public FlatViewQueryController(FlatViewCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @GetMapping
+    public Mono<FlatViewsPage> queryFlatViews(@PathVariable String realm,
+                                              @PathVariable String damId,
+                                              @RequestParam MultiValueMap<String, String> params) {
+        final Map<String, List<String>> filters = new HashMap<>(params);
+        filters.remove(PAGE_SIZE);
+        filters.remove(PAGE_TOKEN);
+        filters.remove(FIELDS);
+        final int pageSize = pageSize(params.getFirst(PAGE_SIZE));
+        final String afterPath = decodePageToken(params.getFirst(PAGE_TOKEN));
+        final FieldProjection<FlatView> projection = FieldProjection.parse(params.getFirst(FIELDS),
+                                                                           FlatView.getDefaultInstance());
+
+        return catalog.query(damId, realm, filters, afterPath, pageSize)
+                      .map(page -> {
+                          final AtomicLong saved = new AtomicLong();
+                          final Map<String, FlatView> views = new LinkedHashMap<>();
+                          page.getViews().forEach((path, view) -> views.put(path, projection.apply(view, saved)));
+                          projection.recordSaved("flat-views", saved.get());
+                          return new FlatViewsPage(views, page.getTotalSize(), nextPageToken(page));
+                      });
+    }
+
+    /**
+     * Streams the matching views one at a time, in path order, up to {@code pageSize} if given. Each entry carries
+     * the token to continue after it, so an interrupted stream can be resumed.
+     */
+    @GetMapping(produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+    public Flux<FlatViewEntry> streamFlatViews(@PathVariable String realm,
+                                               @PathVariable String damId,
+                                               @RequestParam MultiValueMap<String, String> params) {
+        final Map<String, List<String>> filters = new HashMap<>(params);
+        filters.remove(PAGE_SIZE);
+        filters.remove(PAGE_TOKEN);
+        filters.remove(FIELDS);
+        final int limit = params.getFirst(PAGE_SIZE) == null ? Integer.MAX_VALUE : pageSize(params.getFirst(PAGE_SIZE));
+        final String afterPath = decodePageToken(params.getFirst(PAGE_TOKEN));
+        final FieldProjection<FlatView> projection = FieldProjection.parse(params.getFirst(FIELDS),
+                                                                           FlatView.getDefaultInstance());
+
+        return Flux.defer(() -> {
+            final AtomicLong saved = new AtomicLong();
+            return catalog.stream(damId, realm, filters, afterPath, limit)
+                          .map(entry -> new FlatViewEntry(entry.getKey(),
+                                                          projection.apply(entry.getValue(), saved),
+                                                          pageToken(entry.getKey())))
+                          .doFinally(signal -> projection.recordSaved("flat-views-stream", saved.get()));
+        });
+    }
+
+    private static int pageSize(String value) {
+        if (value == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            final int pageSize = Integer.parseInt(value);
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+            }
+            return pageSize;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid pageSize: " + value);
+        }
+    }
+
+    /**
+     * Page tokens are the resource path of the last view on the previous page, so they stay valid when the catalog
+     * changes.
+     */
+    private static String nextPageToken(FlatViewIndex.Page page) {
+        if (!page.isMore() || page.getViews().isEmpty()) {
+            return null;
+        }
+        String last = null;
+        for (String path : page.getViews().keySet()) {
+            last = path;
+        }
+        return pageToken(last);
+    }
+
+    private static String pageToken(String path) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(path.getBytes(UTF_8));
+    }
+
+    private static String decodePageToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid pageToken");
+        }
+    }
+
+}
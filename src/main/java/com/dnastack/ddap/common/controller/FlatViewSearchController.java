@@ -0,0 +1,62 @@
+package com.dnastack.ddap.common.controller;
+
+import com.dnastack.ddap.common.catalog.FieldProjection;
+import com.dnastack.ddap.common.catalog.FlatViewCatalog;
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Searches the resource, view, label and UI names of the flattened views of every DAM, or of the DAM given as
+ * {@code damId}, returning the best {@code limit} matches, with only the view {@code fields} given, if any. See
+ * {@link com.dnastack.ddap.common.catalog.FlatViewSearchIndex} for how queries are matched and ranked.
+ */
+@RestController
+@RequestMapping("/api/v1alpha/realm/{realm}/dam/search")
+public class FlatViewSearchController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final FlatViewCatalog catalog;
+
+    @Autowired
+    public FlatViewSearchController(FlatViewCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @GetMapping
+    public Mono<FlatViewSearchResults> search(@PathVariable String realm,
+                                              @RequestParam("q") String query,
+                                              @RequestParam(required = false) String damId,
+                                              @RequestParam(defaultValue = "20") int limit,
+                                              @RequestParam(required = false) String fields) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        final FieldProjection<FlatView> projection = FieldProjection.parse(fields, FlatView.getDefaultInstance());
+        return catalog.search(realm, damId, query, limit)
+                      .map(hits -> {
+                          final AtomicLong saved = new AtomicLong();
+                          final List<FlatViewSearchResult> results =
+                              hits.stream()
+                                  .map(hit -> new FlatViewSearchResult(hit.getDamId(),
+                                                                       hit.getHit().getResourcePath(),
+                                                                       hit.getHit().getScore(),
+                                                                       projection.apply(hit.getHit().getView(), saved)))
+                                  .collect(toList());
+                          projection.recordSaved("search", saved.get());
+                          return new FlatViewSearchResults(results);
+                      });
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.dnastack.ddap.common.controller;
+
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FlatViewSearchResult {
+    private String damId;
+    private String resourcePath;
+    private int score;
+    private FlatView view;
+}
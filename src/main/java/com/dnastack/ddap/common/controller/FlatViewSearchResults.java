@@ -0,0 +1,14 @@
+package com.dnastack.ddap.common.controller;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FlatViewSearchResults {
+    private List<FlatViewSearchResult> results;
+}
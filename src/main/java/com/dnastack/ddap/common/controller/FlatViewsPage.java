@@ -0,0 +1,17 @@
+package com.dnastack.ddap.common.controller;
+
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FlatViewsPage {
+    private Map<String, FlatView> views;
+    private int totalSize;
+    private String nextPageToken;
+}
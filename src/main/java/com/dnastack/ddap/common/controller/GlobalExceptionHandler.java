@@ -2,6 +2,7 @@ package com.dnastack.ddap.common.controller;
 
 import com.dnastack.ddap.common.client.CartCheckoutException;
 import com.dnastack.ddap.common.exception.ServiceOutage;
+import com.dnastack.ddap.common.exception.UnknownDamException;
 import com.dnastack.ddap.common.security.*;
 import com.dnastack.ddap.common.util.http.XForwardUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -63,6 +64,11 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(403).body(new DdapErrorResponse(ex.getMessage(), 403));
     }
 
+    @ExceptionHandler(UnknownDamException.class)
+    public ResponseEntity<DdapErrorResponse> handle(UnknownDamException ex) {
+        return ResponseEntity.status(404).body(new DdapErrorResponse(ex.getMessage(), 404));
+    }
+
     @ExceptionHandler(ServiceOutage.class)
     public ResponseEntity<DdapErrorResponse> handle(ServiceOutage ex) {
         return ResponseEntity.status(500).body(new DdapErrorResponse(ex.getMessage(), 500));
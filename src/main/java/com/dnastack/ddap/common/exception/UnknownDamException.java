@@ -0,0 +1,7 @@
+package com.dnastack.ddap.common.exception;
+
+public class UnknownDamException extends RuntimeException {
+    public UnknownDamException(String damId) {
+        super("Unknown DAM: " + damId);
+    }
+}
@@ -4,12 +4,12 @@ import com.dnastack.ddap.common.client.WebClientFactory;
 import com.dnastack.ddap.common.security.InvalidTokenException;
 import com.dnastack.ddap.ic.oauth.client.TokenExchangeException;
 import com.dnastack.ddap.ic.oauth.model.TokenResponse;
-import lombok.AllArgsConstructor;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
@@ -21,10 +21,23 @@ import java.util.Optional;
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
-@AllArgsConstructor
 @Slf4j
 public class BaseReactiveOAuthClient implements ReactiveOAuthClient {
     private final AuthServerInfo authServerInfo;
+    private final WebClient webClient;
+
+    public BaseReactiveOAuthClient(AuthServerInfo authServerInfo) {
+        this(authServerInfo, WebClientFactory.getWebClient());
+    }
+
+    /**
+     * @param webClient the shared client for this auth server, usually one of
+     *                  {@link WebClientFactory#getWebClient(String)}
+     */
+    public BaseReactiveOAuthClient(AuthServerInfo authServerInfo, WebClient webClient) {
+        this.authServerInfo = authServerInfo;
+        this.webClient = webClient;
+    }
 
     @Value
     public static class AuthServerInfo {
@@ -44,29 +57,27 @@ public class BaseReactiveOAuthClient implements ReactiveOAuthClient {
     public Mono<TokenResponse> exchangeAuthorizationCodeForTokens(String realm, URI redirectUri, String code) {
         final URI uri = authServerInfo.getResolver().getTokenEndpoint(realm);
 
-        return WebClientFactory.getWebClient()
-                               .post()
-                               .uri(uri)
-                               .header(AUTHORIZATION, "Basic " + encodeBasicAuth(authServerInfo.getClientId(), authServerInfo.getClientSecret()))
-                               .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                               .body(BodyInserters.fromFormData("grant_type", "authorization_code")
-                                                  .with("redirect_uri", redirectUri.toString())
-                                                  .with("code", code))
-                               .exchange()
-                               .flatMap(this::extractIdpTokens)
-                               .onErrorMap(ex ->  new InvalidTokenException(ex.getMessage()));
+        return webClient.post()
+                        .uri(uri)
+                        .header(AUTHORIZATION, "Basic " + encodeBasicAuth(authServerInfo.getClientId(), authServerInfo.getClientSecret()))
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .body(BodyInserters.fromFormData("grant_type", "authorization_code")
+                                           .with("redirect_uri", redirectUri.toString())
+                                           .with("code", code))
+                        .exchange()
+                        .flatMap(this::extractIdpTokens)
+                        .onErrorMap(ex ->  new InvalidTokenException(ex.getMessage()));
     }
 
     @Override
     public Mono<Object> getUserInfo(String realm, String accessToken) {
         final Optional<URI> foundEndpoint = authServerInfo.getResolver().getUserInfoEndpoint(realm);
-        return foundEndpoint.map(uri -> WebClientFactory.getWebClient()
-                                                        .get()
-                                                        .uri(uri)
-                                                        .header(AUTHORIZATION, "Bearer " + accessToken)
-                                                        .accept(APPLICATION_JSON)
-                                                        .exchange()
-                                                        .flatMap(response -> response.bodyToMono(Object.class)))
+        return foundEndpoint.map(uri -> webClient.get()
+                                                 .uri(uri)
+                                                 .header(AUTHORIZATION, "Bearer " + accessToken)
+                                                 .accept(APPLICATION_JSON)
+                                                 .exchange()
+                                                 .flatMap(response -> response.bodyToMono(Object.class)))
                             .orElseGet(() -> Mono.error(new UnsupportedOperationException("No user info endpoint specified")));
     }
 
@@ -86,26 +97,24 @@ public class BaseReactiveOAuthClient implements ReactiveOAuthClient {
             params.with("scope", scope);
         }
 
-        return WebClientFactory.getWebClient()
-                               .post()
-                               .uri(uri)
-                               .header("Authorization", "Basic " + encodeBasicAuth(authServerInfo.getClientId(), authServerInfo.getClientSecret()))
-                               .body(params)
-                               .exchange()
-                               .flatMap(this::extractIdpTokens)
-                               .onErrorMap(ex ->  new InvalidTokenException(ex.getMessage()));
+        return webClient.post()
+                        .uri(uri)
+                        .header("Authorization", "Basic " + encodeBasicAuth(authServerInfo.getClientId(), authServerInfo.getClientSecret()))
+                        .body(params)
+                        .exchange()
+                        .flatMap(this::extractIdpTokens)
+                        .onErrorMap(ex ->  new InvalidTokenException(ex.getMessage()));
     }
 
     @Override
     public Mono<ClientResponse> revokeRefreshToken(String realm, String refreshToken) {
         final URI uri = authServerInfo.getResolver().getRevokeEndpoint(realm);
 
-        return WebClientFactory.getWebClient()
-                               .post()
-                               .uri(uri)
-                               .header("Authorization", "Basic " + encodeBasicAuth(authServerInfo.getClientId(), authServerInfo.getClientSecret()))
-                               .body(BodyInserters.fromFormData("refresh_token", refreshToken))
-                               .exchange();
+        return webClient.post()
+                        .uri(uri)
+                        .header("Authorization", "Basic " + encodeBasicAuth(authServerInfo.getClientId(), authServerInfo.getClientSecret()))
+                        .body(BodyInserters.fromFormData("refresh_token", refreshToken))
+                        .exchange();
     }
 
     private Mono<TokenResponse> extractIdpTokens(ClientResponse idpTokenResponse) {
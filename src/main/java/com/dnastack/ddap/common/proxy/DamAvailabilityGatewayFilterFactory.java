@@ -0,0 +1,57 @@
+package com.dnastack.ddap.common.proxy;
+
+import com.dnastack.ddap.common.client.DamRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Answers requests to a DAM that the {@link DamRegistry} knows to be down with {@code 503 Service Unavailable},
+ * without trying to reach it.
+ */
+@Slf4j
+@Component
+public class DamAvailabilityGatewayFilterFactory extends AbstractGatewayFilterFactory<DamAvailabilityGatewayFilterFactory.Config> {
+
+    private final DamRegistry damRegistry;
+
+    @Autowired
+    public DamAvailabilityGatewayFilterFactory(DamRegistry damRegistry) {
+        super(Config.class);
+        this.damRegistry = damRegistry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("damId");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        requireNonNull(config.getDamId(), "Must specify damId in filter config.");
+        return (exchange, chain) -> {
+            if (!damRegistry.isAvailable(config.getDamId())) {
+                log.debug("Rejecting request to DAM [{}]: DAM is down", config.getDamId());
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                return exchange.getResponse().setComplete();
+            }
+            return chain.filter(exchange);
+        };
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * Key of the DAM in the {@code dams} configuration map.
+         */
+        private String damId;
+    }
+}
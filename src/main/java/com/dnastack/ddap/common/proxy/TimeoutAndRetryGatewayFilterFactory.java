@@ -17,6 +17,7 @@
 
 package com.dnastack.ddap.common.proxy;
 
+import com.dnastack.ddap.common.client.RetryBudget;
 import com.dnastack.ddap.common.util.TimeoutUtil;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -63,6 +64,11 @@ public class TimeoutAndRetryGatewayFilterFactory extends AbstractGatewayFilterFa
 	public GatewayFilter apply(RetryConfig retryConfig) {
 		retryConfig.validate();
 
+		// ADDED
+		final RetryBudget retryBudget = retryConfig.getRetryBudget() == null
+				? null
+				: RetryBudget.get(retryConfig.getRetryBudget());
+
 		Repeat<ServerWebExchange> statusCodeRepeat = null;
 		if (!retryConfig.getStatuses().isEmpty() || !retryConfig.getSeries().isEmpty()) {
 			Predicate<RepeatContext<ServerWebExchange>> repeatPredicate = context -> {
@@ -83,7 +89,8 @@ public class TimeoutAndRetryGatewayFilterFactory extends AbstractGatewayFilterFa
 				}
 
 				boolean retryableMethod = retryConfig.getMethods().contains(httpMethod);
-				return retryableMethod && retryableStatusCode;
+				// CHANGED: retries are only sent if the upstream's retry budget allows it
+				return retryableMethod && retryableStatusCode && allowRetry(retryBudget);
 			};
 
 			statusCodeRepeat = Repeat.onlyIf(repeatPredicate)
@@ -101,7 +108,8 @@ public class TimeoutAndRetryGatewayFilterFactory extends AbstractGatewayFilterFa
 
 				for (Class<? extends Throwable> clazz : retryConfig.getExceptions()) {
 					if (clazz.isInstance(context.exception())) {
-						return true;
+						// CHANGED: retries are only sent if the upstream's retry budget allows it
+						return allowRetry(retryBudget);
 					}
 				}
 				return false;
@@ -112,7 +120,12 @@ public class TimeoutAndRetryGatewayFilterFactory extends AbstractGatewayFilterFa
 		}
 
 
-		return apply(retryConfig, statusCodeRepeat, exceptionRetry);
+		return apply(retryConfig, statusCodeRepeat, exceptionRetry, retryBudget);
+	}
+
+	// ADDED
+	private static boolean allowRetry(RetryBudget retryBudget) {
+		return retryBudget == null || retryBudget.tryAcquireRetry();
 	}
 
 	public boolean exceedsMaxIterations(ServerWebExchange exchange, RetryConfig retryConfig) {
@@ -128,6 +141,10 @@ public class TimeoutAndRetryGatewayFilterFactory extends AbstractGatewayFilterFa
 	}
 
 	public GatewayFilter apply(RetryConfig config, Repeat<ServerWebExchange> repeat, Retry<ServerWebExchange> retry) {
+		return apply(config, repeat, retry, null);
+	}
+
+	public GatewayFilter apply(RetryConfig config, Repeat<ServerWebExchange> repeat, Retry<ServerWebExchange> retry, RetryBudget retryBudget) {
 		return (exchange, chain) -> {
 			if (log.isTraceEnabled()) {
 				log.trace("Entering retry-filter");
@@ -153,6 +170,11 @@ public class TimeoutAndRetryGatewayFilterFactory extends AbstractGatewayFilterFa
                     .doOnSuccessOrError((aVoid, throwable) -> {
                         int iteration = exchange.getAttributeOrDefault(RETRY_ITERATION_KEY, -1);
                         exchange.getAttributes().put(RETRY_ITERATION_KEY, iteration + 1);
+						// ADDED: successful responses replenish the retry budget
+						HttpStatus statusCode = exchange.getResponse().getStatusCode();
+						if (retryBudget != null && throwable == null && (statusCode == null || !statusCode.is5xxServerError())) {
+							retryBudget.recordSuccess();
+						}
                     });
 
             if (retry != null) {
@@ -187,6 +209,8 @@ public class TimeoutAndRetryGatewayFilterFactory extends AbstractGatewayFilterFa
 	- timeoutExponentialScalingBase
 	- minimumTimeout
 	- maximumTimeout
+	Added retryBudget: the id of the upstream whose retry budget limits retries. No budget applies if null. The
+	budget must have been registered from the upstream's properties (see WebClientFactory).
 	 */
 	@SuppressWarnings("unchecked")
 	@Data
@@ -195,6 +219,7 @@ public class TimeoutAndRetryGatewayFilterFactory extends AbstractGatewayFilterFa
 		private double timeoutExponentialScalingBase = 2.0;
 		private long minimumTimeout = 1000;
 		private long maximumTimeout = 30000;
+		private String retryBudget;
 
 		private List<Series> series = toList(Series.SERVER_ERROR);
 		
@@ -0,0 +1,69 @@
+package com.dnastack.ddap.common.proxy;
+
+import com.dnastack.ddap.common.client.CircuitBreaker;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Guards a route with the {@link CircuitBreaker} of the upstream it proxies to, so that proxied requests and the
+ * upstream's client share one view of its health. While the circuit is open, requests are answered with
+ * {@code 503 Service Unavailable} without reaching the upstream.
+ * <p>
+ * Must be applied before the TimeoutAndRetry filter, so that a request counts once no matter how many attempts it
+ * took.
+ */
+@Slf4j
+@Component
+public class UpstreamCircuitBreakerGatewayFilterFactory extends AbstractGatewayFilterFactory<UpstreamCircuitBreakerGatewayFilterFactory.Config> {
+
+    public UpstreamCircuitBreakerGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("upstream");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        requireNonNull(config.getUpstream(), "Must specify upstream in filter config.");
+        final CircuitBreaker circuitBreaker = CircuitBreaker.get(config.getUpstream());
+        return (exchange, chain) -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                log.debug("Rejecting request to upstream [{}]: circuit breaker is {}", config.getUpstream(), circuitBreaker.getState());
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                return exchange.getResponse().setComplete();
+            }
+            final long start = System.nanoTime();
+            return chain.filter(exchange)
+                        .doOnSuccess(ignore -> {
+                            final HttpStatus statusCode = exchange.getResponse().getStatusCode();
+                            circuitBreaker.onResult(elapsedSince(start), statusCode != null && statusCode.is5xxServerError());
+                        })
+                        .doOnError(ex -> circuitBreaker.onResult(elapsedSince(start), true));
+        };
+    }
+
+    private static Duration elapsedSince(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * Id of the upstream whose circuit breaker guards the route. The breaker must have been registered from the
+         * upstream's properties.
+         */
+        private String upstream;
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriTemplate;
 import reactor.core.publisher.Mono;
 import scim.v2.Users;
@@ -24,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import static org.springframework.http.HttpHeaders.ACCEPT;
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 
@@ -39,10 +41,12 @@ public class ReactiveIcAccountClient implements ReactiveLinkingClient {
                                                          "?client_id={clientId}" +
                                                          "&client_secret={clientSecret}");
     private IcProperties icProperties;
+    private WebClient webClient;
     private AuthAwareWebClientFactory webClientFactory;
 
     public ReactiveIcAccountClient(IcProperties icProperties, AuthAwareWebClientFactory webClientFactory) {
         this.icProperties = icProperties;
+        this.webClient = WebClientFactory.getWebClient(WebClientFactory.IC_UPSTREAM, icProperties);
         this.webClientFactory = webClientFactory;
     }
 
@@ -55,20 +59,25 @@ public class ReactiveIcAccountClient implements ReactiveLinkingClient {
         final String refreshTokenClearText = Optional.ofNullable(refreshToken)
                                                      .map(CookieValue::getClearText)
                                                      .orElse(null);
-        return webClientFactory.getWebClient(realm, null, OAuthFilter.Audience.IC)
+        return webClientFactory.getWebClient(WebClientFactory.IC_UPSTREAM)
                                .get()
                                .uri(icProperties.getBaseUrl().resolve(SCIM_ME_TEMPLATE.expand(variables)))
+                               .attribute(WebClientFactory.OPERATION_ATTRIBUTE, "scimMe")
+                               .attributes(OAuthFilter.refreshAttributes(realm, null, OAuthFilter.Audience.IC))
                                .header(AUTHORIZATION, "Bearer " + icToken.getClearText())
-                               .retrieve()
-                               .bodyToMono(String.class)
-                               .flatMap(json -> ProtobufDeserializer.fromJsonToMono(json, Users.User.getDefaultInstance()));
+                               .header(ACCEPT, ProtobufDeserializer.PROTOBUF_OR_JSON)
+                               .exchange()
+                               .flatMap(response -> ProtobufDeserializer.fromResponse(WebClientFactory.IC_UPSTREAM,
+                                                                                      response,
+                                                                                      Users.User.getDefaultInstance()));
     }
 
     public Mono<IcUserInfo> getUserInfo(String accessToken) {
         final URI uri = icProperties.getBaseUrl().resolve("/userinfo");
-        return WebClientFactory.getWebClient()
+        return webClient
                                .get()
                                .uri(uri)
+                               .attribute(WebClientFactory.OPERATION_ATTRIBUTE, "userInfo")
                                .header(AUTHORIZATION, "Bearer " + accessToken)
                                .accept(APPLICATION_JSON)
                                .exchange()
@@ -106,7 +115,7 @@ public class ReactiveIcAccountClient implements ReactiveLinkingClient {
             "value", "X-Link-Authorization"
         )));
 
-        return WebClientFactory.getWebClient()
+        return webClient
             .patch()
             .uri(icProperties.getBaseUrl().resolve(SCIM_ME_TEMPLATE.expand(variables)))
             .header(AUTHORIZATION, "Bearer " + baseAccountAccessToken)
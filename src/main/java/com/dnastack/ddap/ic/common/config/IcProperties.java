@@ -1,5 +1,12 @@
 package com.dnastack.ddap.ic.common.config;
 
+import com.dnastack.ddap.common.config.AdaptiveTimeoutProperties;
+import com.dnastack.ddap.common.config.CircuitBreakerProperties;
+import com.dnastack.ddap.common.config.ConnectionPoolProperties;
+import com.dnastack.ddap.common.config.DecodeProperties;
+import com.dnastack.ddap.common.config.HedgingProperties;
+import com.dnastack.ddap.common.config.RetryBudgetProperties;
+import com.dnastack.ddap.common.config.UpstreamProperties;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -7,11 +14,17 @@ import java.net.URI;
 
 @Data
 @ConfigurationProperties(prefix = "ic")
-public class IcProperties {
+public class IcProperties implements UpstreamProperties {
 
     private URI baseUrl;
     private String clientId;
     private String clientSecret;
     private URI uiUrl;
+    private ConnectionPoolProperties pool = new ConnectionPoolProperties();
+    private HedgingProperties hedging = new HedgingProperties();
+    private AdaptiveTimeoutProperties timeouts = new AdaptiveTimeoutProperties();
+    private RetryBudgetProperties retryBudget = new RetryBudgetProperties();
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+    private DecodeProperties decode = new DecodeProperties();
 
 }
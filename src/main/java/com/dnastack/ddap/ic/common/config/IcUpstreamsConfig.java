@@ -0,0 +1,24 @@
+package com.dnastack.ddap.ic.common.config;
+
+import com.dnastack.ddap.common.client.CircuitBreaker;
+import com.dnastack.ddap.common.client.RetryBudget;
+import com.dnastack.ddap.common.client.WebClientFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the retry budgets and circuit breakers of the IdP and the IC from their properties at startup, before any
+ * gateway route refers to them by upstream id (for example {@code UpstreamCircuitBreaker=idp}).
+ */
+@Configuration
+public class IcUpstreamsConfig {
+
+    @Autowired
+    public IcUpstreamsConfig(IdpProperties idpProperties, IcProperties icProperties) {
+        RetryBudget.forUpstream(WebClientFactory.IDP_UPSTREAM, idpProperties.getRetryBudget());
+        RetryBudget.forUpstream(WebClientFactory.IC_UPSTREAM, icProperties.getRetryBudget());
+        CircuitBreaker.forUpstream(WebClientFactory.IDP_UPSTREAM, idpProperties.getCircuitBreaker());
+        CircuitBreaker.forUpstream(WebClientFactory.IC_UPSTREAM, icProperties.getCircuitBreaker());
+    }
+
+}
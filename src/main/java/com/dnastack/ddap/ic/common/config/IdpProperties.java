@@ -1,5 +1,12 @@
 package com.dnastack.ddap.ic.common.config;
 
+import com.dnastack.ddap.common.config.AdaptiveTimeoutProperties;
+import com.dnastack.ddap.common.config.CircuitBreakerProperties;
+import com.dnastack.ddap.common.config.ConnectionPoolProperties;
+import com.dnastack.ddap.common.config.DecodeProperties;
+import com.dnastack.ddap.common.config.HedgingProperties;
+import com.dnastack.ddap.common.config.RetryBudgetProperties;
+import com.dnastack.ddap.common.config.UpstreamProperties;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -7,7 +14,7 @@ import java.net.URI;
 
 @Data
 @ConfigurationProperties(prefix = "idp")
-public class IdpProperties {
+public class IdpProperties implements UpstreamProperties {
 
     /**
      * Authorize url. May contain {@code {realm}} placeholder.
@@ -31,5 +38,11 @@ public class IdpProperties {
 
     private String clientId;
     private String clientSecret;
+    private ConnectionPoolProperties pool = new ConnectionPoolProperties();
+    private HedgingProperties hedging = new HedgingProperties();
+    private AdaptiveTimeoutProperties timeouts = new AdaptiveTimeoutProperties();
+    private RetryBudgetProperties retryBudget = new RetryBudgetProperties();
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+    private DecodeProperties decode = new DecodeProperties();
 
 }
@@ -1,5 +1,6 @@
 package com.dnastack.ddap.ic.oauth.client;
 
+import com.dnastack.ddap.common.client.WebClientFactory;
 import com.dnastack.ddap.common.oauth.BaseReactiveOAuthClient;
 import com.dnastack.ddap.ic.common.config.IdpProperties;
 import lombok.AllArgsConstructor;
@@ -17,7 +18,8 @@ import java.util.Optional;
 public class ReactiveIdpOAuthClient extends BaseReactiveOAuthClient {
 
     public ReactiveIdpOAuthClient(IdpProperties idpProperties) {
-        super(new AuthServerInfo(idpProperties.getClientId(), idpProperties.getClientSecret(), new IcEndpointResolver(idpProperties)));
+        super(new AuthServerInfo(idpProperties.getClientId(), idpProperties.getClientSecret(), new IcEndpointResolver(idpProperties)),
+              WebClientFactory.getWebClient(WebClientFactory.IDP_UPSTREAM, idpProperties));
     }
 
     public URI getAuthorizeUrl(String realm, String state, String scopes, URI redirectUri, String loginHint) {
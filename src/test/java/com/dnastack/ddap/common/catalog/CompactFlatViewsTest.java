@@ -0,0 +1,64 @@
+package com.dnastack.ddap.common.catalog;
+
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactFlatViewsTest {
+
+    @Test
+    public void holdsTheSameViews() {
+        final Map<String, FlatView> views = views(3);
+
+        final CompactFlatViews compact = CompactFlatViews.of(views);
+
+        assertThat(compact).isEqualTo(views);
+        assertThat(compact.get("/resource-1/view")).isEqualTo(views.get("/resource-1/view"));
+        assertThat(compact.get("/missing")).isNull();
+        assertThat(compact.keySet()).containsExactly("/resource-0/view", "/resource-1/view", "/resource-2/view");
+        assertThat(CompactFlatViews.of(compact)).isSameAs(compact);
+    }
+
+    @Test
+    public void sharesRepeatedStringsAndMaps() {
+        final CompactFlatViews compact = CompactFlatViews.of(views(100));
+
+        assertThat(compact.getResourceUi(0)).isSameAs(compact.getResourceUi(99));
+        assertThat(compact.get(0, CompactFlatViews.Column.INTERFACE_URI))
+            .isSameAs(compact.get(99, CompactFlatViews.Column.INTERFACE_URI));
+        assertThat(compact.getFootprint()).isLessThan(compact.getSourceFootprint() / 2);
+    }
+
+    private static Map<String, FlatView> views(int count) {
+        final Map<String, FlatView> views = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String path = "/resource-" + i + "/view";
+            views.put(path, FlatView.newBuilder()
+                                    .setResourcePath(path)
+                                    .setUmbrella("thousand-genomes")
+                                    .setResourceName("resource-" + i)
+                                    .setViewName("view")
+                                    .setRoleName("viewer")
+                                    .setInterfaceName("http:gcp:gs")
+                                    .setInterfaceUri("https://storage.cloud.google.com/thousand-genomes")
+                                    .setContentType("application/bam")
+                                    .setServiceName("gcs")
+                                    .setPlatform("gcp")
+                                    .setMaxTokenTtl("1h")
+                                    .putLabels("version", "Phase 3")
+                                    .putResourceUi("label", "1000 Genomes")
+                                    .putResourceUi("description", "Whole genome sequencing of 2504 individuals")
+                                    .putViewUi("label", "Full File Read Access")
+                                    .putRoleUi("label", "File Viewer")
+                                    .addRoleCategories("list")
+                                    .addRoleCategories("metadata")
+                                    .build());
+        }
+        return views;
+    }
+
+}
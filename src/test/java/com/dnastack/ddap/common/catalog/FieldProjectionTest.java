@@ -0,0 +1,67 @@
+package com.dnastack.ddap.common.catalog;
+
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FieldProjectionTest {
+
+    private static final FlatView VIEW = FlatView.newBuilder()
+                                                 .setResourcePath("/thousand-genomes/views/full")
+                                                 .setResourceName("thousand-genomes")
+                                                 .setViewName("full")
+                                                 .setInterfaceUri("gs://thousand-genomes")
+                                                 .putLabels("topic", "variants")
+                                                 .putLabels("version", "Phase 3")
+                                                 .putResourceUi("label", "1000 Genomes")
+                                                 .putViewUi("label", "Full File Read Access")
+                                                 .addRoleCategories("list")
+                                                 .build();
+
+    @Test
+    public void keepsOnlyTheRequestedFieldsAndMapKeys() {
+        final FieldProjection<FlatView> projection = FieldProjection.parse("resourceName, view_name,interfaceUri,labels.topic",
+                                                                           FlatView.getDefaultInstance());
+        final AtomicLong saved = new AtomicLong();
+
+        final FlatView projected = projection.apply(VIEW, saved);
+
+        assertThat(projected).isEqualTo(FlatView.newBuilder()
+                                                .setResourceName("thousand-genomes")
+                                                .setViewName("full")
+                                                .setInterfaceUri("gs://thousand-genomes")
+                                                .putLabels("topic", "variants")
+                                                .build());
+        assertThat(saved.get()).isEqualTo(VIEW.getSerializedSize() - projected.getSerializedSize());
+    }
+
+    @Test
+    public void wholeFieldWinsOverKeys() {
+        final FieldProjection<FlatView> projection = FieldProjection.parse("labels.topic,labels,roleCategories",
+                                                                           FlatView.getDefaultInstance());
+
+        final FlatView projected = projection.apply(VIEW);
+
+        assertThat(projected.getLabelsMap()).isEqualTo(VIEW.getLabelsMap());
+        assertThat(projected.getRoleCategoriesList()).containsExactly("list");
+        assertThat(projected.getResourceUiMap()).isEmpty();
+    }
+
+    @Test
+    public void noFieldsKeepsTheMessage() {
+        assertThat(FieldProjection.parse(null, FlatView.getDefaultInstance()).apply(VIEW)).isSameAs(VIEW);
+    }
+
+    @Test
+    public void rejectsUnknownFields() {
+        assertThatThrownBy(() -> FieldProjection.parse("resourceName,secret", FlatView.getDefaultInstance()))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FieldProjection.parse("viewName.x", FlatView.getDefaultInstance()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.dnastack.ddap.common.catalog;
+
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FlatViewIndexTest {
+
+    private final FlatViewIndex index = FlatViewIndex.build(Map.of(
+        "/a", view("application/bam", "gcs", "list", "variants"),
+        "/b", view("application/bam", "bigquery", "metadata", "variants"),
+        "/c", view("text/csv", "gcs", "list", "phenotypes"),
+        "/d", view("application/bam", "gcs", "metadata", "phenotypes")));
+
+    @Test
+    public void intersectsFieldsAndUnitesValues() {
+        final FlatViewIndex.Page page = index.query(Map.of(FlatViewIndex.CONTENT_TYPE, List.of("application/bam"),
+                                                           FlatViewIndex.SERVICE_NAME, List.of("gcs"),
+                                                           FlatViewIndex.LABEL_PREFIX + "topic", List.of("variants", "phenotypes")),
+                                                    null,
+                                                    10);
+
+        assertThat(page.getViews()).containsOnlyKeys("/a", "/d");
+        assertThat(page.getTotalSize()).isEqualTo(2);
+        assertThat(page.isMore()).isFalse();
+    }
+
+    @Test
+    public void pagesInPathOrder() {
+        final Map<String, List<String>> filters = Map.of(FlatViewIndex.SERVICE_NAME, List.of("gcs"));
+
+        final FlatViewIndex.Page first = index.query(filters, null, 2);
+        assertThat(first.getViews().keySet()).containsExactly("/a", "/c");
+        assertThat(first.getTotalSize()).isEqualTo(3);
+        assertThat(first.isMore()).isTrue();
+
+        final FlatViewIndex.Page second = index.query(filters, "/c", 2);
+        assertThat(second.getViews().keySet()).containsExactly("/d");
+        assertThat(second.isMore()).isFalse();
+    }
+
+    @Test
+    public void returnsNothingForUnknownValue() {
+        assertThat(index.query(Map.of(FlatViewIndex.PLATFORM, List.of("aws")), null, 10).getViews()).isEmpty();
+    }
+
+    @Test
+    public void readsPagesFromTheMapItWasBuiltFrom() {
+        final Map<String, FlatView> views = Map.of("/a", view("application/bam", "gcs", "list", "variants"),
+                                                   "/b", view("text/csv", "gcs", "list", "phenotypes"));
+        final OffHeapMessageMap<FlatView> offHeap = OffHeapMessageMap.of(views, FlatView.getDefaultInstance());
+
+        final FlatViewIndex offHeapIndex = FlatViewIndex.build(offHeap);
+
+        assertThat(offHeapIndex.isBuiltFrom(offHeap)).isTrue();
+        assertThat(offHeapIndex.query(Map.of(FlatViewIndex.CONTENT_TYPE, List.of("text/csv")), null, 10).getViews())
+            .isEqualTo(Map.of("/b", views.get("/b")));
+    }
+
+    @Test
+    public void rejectsUnknownField() {
+        assertThatThrownBy(() -> index.query(Map.of("viewName", List.of("x")), null, 10))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static FlatView view(String contentType, String serviceName, String roleCategory, String topic) {
+        return FlatView.newBuilder()
+                       .setContentType(contentType)
+                       .setServiceName(serviceName)
+                       .setPlatform("gcp")
+                       .addRoleCategories(roleCategory)
+                       .putLabels("topic", topic)
+                       .build();
+    }
+
+}
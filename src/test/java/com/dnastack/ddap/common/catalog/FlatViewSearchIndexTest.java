@@ -0,0 +1,73 @@
+package com.dnastack.ddap.common.catalog;
+
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlatViewSearchIndexTest {
+
+    private final Map<String, FlatView> views = Map.of(
+        "/thousand-genomes/discovery", view("thousand-genomes", "discovery", "Phase 3 variants"),
+        "/thousand-genomes/gcs-file-access", view("thousand-genomes", "gcs-file-access", "Phase 3 reads"),
+        "/ga4gh-apis/beacon", view("ga4gh-apis", "beacon", "Beacon of genomes"));
+
+    private final FlatViewSearchIndex index = FlatViewSearchIndex.build(views, null);
+
+    @Test
+    public void matchesAnywhereInNames() {
+        assertThat(paths(index.search("genome", 10))).containsExactly("/thousand-genomes/discovery",
+                                                                      "/thousand-genomes/gcs-file-access",
+                                                                      "/ga4gh-apis/beacon");
+        assertThat(paths(index.search("ACCESS", 10))).containsExactly("/thousand-genomes/gcs-file-access");
+    }
+
+    @Test
+    public void matchesShortTermsAtWordStart() {
+        assertThat(paths(index.search("be", 10))).containsExactly("/ga4gh-apis/beacon");
+        assertThat(index.search("ea", 10)).isEmpty();
+    }
+
+    @Test
+    public void requiresEveryTerm() {
+        assertThat(paths(index.search("phase reads", 10))).containsExactly("/thousand-genomes/gcs-file-access");
+        assertThat(index.search("beacon reads", 10)).isEmpty();
+    }
+
+    @Test
+    public void ranksNameMatchesFirstAndKeepsTopResults() {
+        final List<FlatViewSearchIndex.Hit> hits = index.search("beacon", 1);
+
+        assertThat(paths(hits)).containsExactly("/ga4gh-apis/beacon");
+        assertThat(hits.get(0).getScore()).isEqualTo(8);
+    }
+
+    @Test
+    public void reusesUnchangedViews() {
+        final Map<String, FlatView> changed = new HashMap<>(views);
+        changed.put("/ga4gh-apis/beacon", view("ga4gh-apis", "beacon", "Federated beacon"));
+
+        final FlatViewSearchIndex rebuilt = FlatViewSearchIndex.build(changed, index);
+
+        assertThat(rebuilt.getReused()).isEqualTo(2);
+        assertThat(paths(rebuilt.search("federated", 10))).containsExactly("/ga4gh-apis/beacon");
+    }
+
+    private static List<String> paths(List<FlatViewSearchIndex.Hit> hits) {
+        return hits.stream().map(FlatViewSearchIndex.Hit::getResourcePath).collect(Collectors.toList());
+    }
+
+    private static FlatView view(String resourceName, String viewName, String label) {
+        return FlatView.newBuilder()
+                       .setResourceName(resourceName)
+                       .setViewName(viewName)
+                       .putResourceUi("label", label)
+                       .build();
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.dnastack.ddap.common.catalog;
+
+import dam.v1.DamService;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapMessageMapTest {
+
+    @Test
+    public void readsBackStoredMessages() {
+        final Map<String, DamService.Resource> resources = Map.of(
+            "thousand-genomes", DamService.Resource.newBuilder().putUi("label", "1000 Genomes").build(),
+            "empty", DamService.Resource.getDefaultInstance(),
+            "ga4gh-apis", DamService.Resource.newBuilder().putUi("label", "GA4GH APIs").build());
+
+        final OffHeapMessageMap<DamService.Resource> offHeap = OffHeapMessageMap.of(resources,
+                                                                                    DamService.Resource.getDefaultInstance());
+
+        assertThat(offHeap).isEqualTo(resources);
+        assertThat(offHeap.keySet()).containsExactly("empty", "ga4gh-apis", "thousand-genomes");
+        assertThat(offHeap.get("ga4gh-apis").getUiMap()).containsEntry("label", "GA4GH APIs");
+        assertThat(offHeap.get("missing")).isNull();
+        assertThat(offHeap.getOffHeapSize()).isEqualTo(resources.values()
+                                                                .stream()
+                                                                .mapToInt(DamService.Resource::getSerializedSize)
+                                                                .sum());
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.config.AdaptiveTimeoutProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.gateway.support.TimeoutException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AdaptiveTimeoutsTest {
+
+    private AdaptiveTimeoutProperties properties;
+
+    @Before
+    public void setUp() {
+        properties = new AdaptiveTimeoutProperties();
+        properties.setMinSamples(5);
+        properties.setPercentile(0.99);
+        properties.setFactor(2.0);
+        properties.setMinTimeout(Duration.ofMillis(10));
+        properties.setMaxTimeout(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void followsFixedLadderWhenDisabled() {
+        properties.setMaxTimeout(Duration.ofSeconds(80));
+        final AdaptiveTimeouts timeouts = new AdaptiveTimeouts("test", properties);
+
+        assertThat(timeouts.getAttemptTimeout("op", 0)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(timeouts.getAttemptTimeout("op", 1)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(timeouts.getAttemptTimeout("op", 2)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(timeouts.getAttemptTimeout("op", 3)).isEqualTo(Duration.ofSeconds(80));
+    }
+
+    @Test
+    public void startsAtOneSecondUntilEnoughSamples() {
+        properties.setEnabled(true);
+        final AdaptiveTimeouts timeouts = new AdaptiveTimeouts("test", properties);
+
+        observe(timeouts, "op", Duration.ofMillis(50), 4);
+
+        assertThat(timeouts.getObservedLatency("op", 0.99)).isEmpty();
+        assertThat(timeouts.getAttemptTimeout("op", 0)).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void scalesLadderByObservedLatency() {
+        properties.setEnabled(true);
+        final AdaptiveTimeouts timeouts = new AdaptiveTimeouts("test", properties);
+
+        observe(timeouts, "op", Duration.ofMillis(50), 5);
+
+        assertThat(timeouts.getObservedLatency("op", 0.99)).hasValue(Duration.ofMillis(50));
+        assertThat(timeouts.getAttemptTimeout("op", 0)).isEqualTo(Duration.ofMillis(100));
+        assertThat(timeouts.getAttemptTimeout("op", 1)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(timeouts.getAttemptTimeout("op", 2)).isEqualTo(Duration.ofSeconds(3));
+        assertThat(timeouts.getAttemptTimeout("op", 3)).isEqualTo(Duration.ofSeconds(8));
+        // Operations are tracked separately
+        assertThat(timeouts.getAttemptTimeout("other", 0)).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void clampsToMinimumAndMaximum() {
+        properties.setEnabled(true);
+        properties.setMinTimeout(Duration.ofMillis(250));
+        properties.setMaxTimeout(Duration.ofSeconds(5));
+        final AdaptiveTimeouts timeouts = new AdaptiveTimeouts("test", properties);
+
+        observe(timeouts, "op", Duration.ofMillis(50), 5);
+
+        assertThat(timeouts.getAttemptTimeout("op", 0)).isEqualTo(Duration.ofMillis(250));
+        assertThat(timeouts.getAttemptTimeout("op", 1)).isEqualTo(Duration.ofMillis(2500));
+        assertThat(timeouts.getAttemptTimeout("op", 3)).isEqualTo(Duration.ofSeconds(5));
+
+        properties.setMaxTimeout(Duration.ofMillis(60));
+
+        assertThat(timeouts.getAttemptTimeout("op", 0)).isEqualTo(Duration.ofMillis(60));
+    }
+
+    /*
+     * Calls that time out are recorded with their timeout as latency, which gives exact samples.
+     */
+    private static void observe(AdaptiveTimeouts timeouts, String operation, Duration latency, int samples) {
+        for (int i = 0; i < samples; i++) {
+            // Checked, so block() throws it wrapped
+            assertThatThrownBy(() -> timeouts.timed(operation, latency, Mono.never()).block())
+                .satisfies(e -> assertThat(Exceptions.unwrap(e)).isInstanceOf(TimeoutException.class));
+        }
+    }
+
+}
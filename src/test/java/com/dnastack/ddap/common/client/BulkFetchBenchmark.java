@@ -0,0 +1,118 @@
+package com.dnastack.ddap.common.client;
+
+import dam.v1.DamService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares fetching 500 resources one after the other against {@link ReactiveDamClient#getResources(String,
+ * java.util.Collection, int)}, from a DAM that takes a millisecond per resource. Not run by the build; run
+ * {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkFetchBenchmark {
+
+    private static final int RESOURCES = 500;
+    private static final String REALM = "master";
+
+    @Param({"8", "32"})
+    private int concurrency;
+
+    private ReactiveDamClient client;
+    private List<String> resourceIds;
+
+    @Setup
+    public void setUp() {
+        client = new SlowDamClient(Duration.ofMillis(1));
+        resourceIds = new ArrayList<>();
+        for (int i = 0; i < RESOURCES; i++) {
+            resourceIds.add("resource-" + i);
+        }
+    }
+
+    @Benchmark
+    public List<DamService.Resource> sequential() {
+        return Flux.fromIterable(resourceIds)
+                   .concatMap(resourceId -> client.getResource(REALM, resourceId))
+                   .collectList()
+                   .block();
+    }
+
+    @Benchmark
+    public BulkResult<DamService.Resource> bulk() {
+        return client.getResources(REALM, resourceIds, concurrency).block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BulkFetchBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static class SlowDamClient implements ReactiveDamClient {
+
+        private final Duration latency;
+
+        SlowDamClient(Duration latency) {
+            this.latency = latency;
+        }
+
+        @Override
+        public Mono<DamService.GetInfoResponse> getDamInfo() {
+            return Mono.just(DamService.GetInfoResponse.getDefaultInstance());
+        }
+
+        @Override
+        public Mono<Map<String, DamService.Resource>> getResources(String realm) {
+            return Mono.just(Map.of());
+        }
+
+        @Override
+        public Mono<DamService.Resource> getResource(String realm, String resourceId) {
+            return Mono.delay(latency)
+                       .map(ignored -> DamService.Resource.newBuilder().putUi("label", resourceId).build());
+        }
+
+        @Override
+        public Mono<Map<String, DamService.View>> getResourceViews(String realm,
+                                                                   String resourceId,
+                                                                   String damToken,
+                                                                   String refreshToken) {
+            return Mono.just(Map.of());
+        }
+
+        @Override
+        public Mono<Map<String, DamService.GetFlatViewsResponse.FlatView>> getFlattenedViews(String realm) {
+            return Mono.just(Map.of());
+        }
+
+        @Override
+        public Mono<DamService.ResourceResults> checkoutCart(String cartToken) {
+            return Mono.empty();
+        }
+    }
+
+}
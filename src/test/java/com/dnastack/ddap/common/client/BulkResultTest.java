@@ -0,0 +1,43 @@
+package com.dnastack.ddap.common.client;
+
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkResultTest {
+
+    @Test
+    public void reportsFailedItemsWithoutFailingTheOthers() {
+        final BulkResult<String> result = BulkResult.fetch(List.of("a", "b", "c", "a"), 2, id -> {
+            if (id.equals("b")) {
+                return Mono.error(new IllegalStateException("b is down"));
+            }
+            return Mono.just(id.toUpperCase());
+        }).block();
+
+        assertThat(result.getValues()).containsExactly(Map.entry("a", "A"), Map.entry("c", "C"));
+        assertThat(result.getErrors()).containsOnlyKeys("b");
+        assertThat(result.getErrors().get("b")).hasMessage("b is down");
+    }
+
+    @Test
+    public void keepsAtMostConcurrencyFetchesInFlight() {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        BulkResult.fetch(List.of("1", "2", "3", "4", "5", "6", "7", "8"), 3, id -> Mono.delay(Duration.ofMillis(10))
+            .doOnSubscribe(s -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+            .doOnSuccess(ignored -> inFlight.decrementAndGet())
+            .thenReturn(id))
+                  .block();
+
+        assertThat(maxInFlight.get()).isEqualTo(3);
+    }
+
+}
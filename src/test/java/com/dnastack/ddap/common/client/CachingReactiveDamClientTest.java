@@ -0,0 +1,180 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.config.CatalogCacheProperties;
+import dam.v1.DamService;
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CachingReactiveDamClientTest {
+
+    private static final String REALM = "master";
+    private static final Revalidated.Validators FIRST = new Revalidated.Validators("\"1\"", null, "hash-1");
+
+    private final FakeDamClient delegate = new FakeDamClient();
+
+    @Test
+    public void servesStaleEntryWhileOneBackgroundRefreshReplacesIt() throws Exception {
+        final CachingReactiveDamClient client = client("swr", Duration.ofMillis(100), Duration.ofSeconds(10));
+        delegate.resources = validators -> Mono.just(Revalidated.changed(resources("first"), FIRST));
+        final Map<String, DamService.Resource> first = client.getResources(REALM).block();
+
+        final Map<String, DamService.Resource> second = resources("second");
+        delegate.resources = validators -> Mono.delay(Duration.ofMillis(300))
+                                               .thenReturn(Revalidated.changed(second, FIRST));
+        Thread.sleep(150);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(client.getResources(REALM).block()).isSameAs(first);
+        }
+        await(() -> delegate.calls.get() == 2);
+        await(() -> client.getResources(REALM).block() == second);
+        assertThat(delegate.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void dropsEntryThatCouldNotBeRefreshedWithinMaxStale() throws Exception {
+        final CachingReactiveDamClient client = client("max-stale", Duration.ofMillis(50), Duration.ofMillis(300));
+        delegate.resources = validators -> Mono.just(Revalidated.changed(resources("first"), FIRST));
+        final Map<String, DamService.Resource> first = client.getResources(REALM).block();
+
+        delegate.resources = validators -> Mono.error(new IllegalStateException("DAM is down"));
+        Thread.sleep(100);
+        assertThat(client.getResources(REALM).block()).isSameAs(first);
+
+        Thread.sleep(300);
+        assertThatThrownBy(() -> client.getResources(REALM).block()).hasMessageContaining("DAM is down");
+    }
+
+    @Test
+    public void keepsTheSameInstanceWhenNotModified() throws Exception {
+        final CachingReactiveDamClient client = client("not-modified", Duration.ofMillis(100), Duration.ofSeconds(10));
+        delegate.resources = validators -> Mono.just(Revalidated.changed(resources("first"), FIRST));
+        final Map<String, DamService.Resource> first = client.getResources(REALM).block();
+
+        // What HttpReactiveDamClient answers on 304 Not Modified
+        delegate.resources = validators -> Mono.just(Revalidated.unchanged(validators));
+        Thread.sleep(150);
+        client.getResources(REALM).block();
+        await(() -> delegate.calls.get() == 2);
+
+        assertThat(client.getResources(REALM).block()).isSameAs(first);
+        assertThat(delegate.received).containsExactly(null, FIRST);
+    }
+
+    @Test
+    public void keepsTheSameFlatViewsWhenTheBodyIsUnchanged() throws Exception {
+        final CachingReactiveDamClient client = client("unchanged", Duration.ofMillis(100), Duration.ofSeconds(10));
+        delegate.flatViews = validators -> Mono.just(Revalidated.changed(Map.of("/a", flatView("/a")), FIRST));
+        final Map<String, FlatView> first = client.getFlattenedViews(REALM).block();
+
+        // What HttpReactiveDamClient answers on 200 OK with a new ETag but the same body hash
+        final Revalidated.Validators second = new Revalidated.Validators("\"2\"", null, FIRST.getContentHash());
+        delegate.flatViews = validators -> Mono.just(Revalidated.unchanged(second));
+        Thread.sleep(150);
+        await(() -> {
+            assertThat(client.getFlattenedViews(REALM).block()).isSameAs(first);
+            return delegate.calls.get() >= 3;
+        });
+
+        assertThat(first).isEqualTo(Map.of("/a", flatView("/a")));
+        assertThat(delegate.received.subList(0, 3)).containsExactly(null, FIRST, second);
+    }
+
+    private CachingReactiveDamClient client(String damId, Duration ttl, Duration maxStale) {
+        final CatalogCacheProperties properties = new CatalogCacheProperties();
+        properties.setTtl(ttl);
+        properties.setMaxStale(maxStale);
+        return new CachingReactiveDamClient("caching-test-" + damId, properties, delegate);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition met within 5s").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static Map<String, DamService.Resource> resources(String label) {
+        return Map.of("thousand-genomes", DamService.Resource.newBuilder().putUi("label", label).build());
+    }
+
+    private static FlatView flatView(String resourcePath) {
+        return FlatView.newBuilder().setResourcePath(resourcePath).setResourceName("resource").build();
+    }
+
+    private static class FakeDamClient implements ReactiveDamClient {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final List<Revalidated.Validators> received = new CopyOnWriteArrayList<>();
+        volatile Function<Revalidated.Validators, Mono<Revalidated<Map<String, DamService.Resource>>>> resources;
+        volatile Function<Revalidated.Validators, Mono<Revalidated<Map<String, FlatView>>>> flatViews;
+
+        @Override
+        public Mono<DamService.GetInfoResponse> getDamInfo() {
+            return Mono.just(DamService.GetInfoResponse.getDefaultInstance());
+        }
+
+        @Override
+        public Mono<Map<String, DamService.Resource>> getResources(String realm) {
+            return getResources(realm, null).map(Revalidated::getValue);
+        }
+
+        @Override
+        public Mono<Revalidated<Map<String, DamService.Resource>>> getResources(String realm,
+                                                                              Revalidated.Validators previous) {
+            return Mono.defer(() -> {
+                calls.incrementAndGet();
+                received.add(previous);
+                return resources.apply(previous);
+            });
+        }
+
+        @Override
+        public Mono<DamService.Resource> getResource(String realm, String resourceId) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Map<String, DamService.View>> getResourceViews(String realm,
+                                                                   String resourceId,
+                                                                   String damToken,
+                                                                   String refreshToken) {
+            return Mono.just(Map.of());
+        }
+
+        @Override
+        public Mono<Map<String, FlatView>> getFlattenedViews(String realm) {
+            return getFlattenedViews(realm, null).map(Revalidated::getValue);
+        }
+
+        @Override
+        public Mono<Revalidated<Map<String, FlatView>>> getFlattenedViews(String realm,
+                                                                          Revalidated.Validators previous) {
+            return Mono.defer(() -> {
+                calls.incrementAndGet();
+                received.add(previous);
+                return flatViews.apply(previous);
+            });
+        }
+
+        @Override
+        public Mono<DamService.ResourceResults> checkoutCart(String cartToken) {
+            return Mono.empty();
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.dnastack.ddap.common.client;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import dam.v1.DamService;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CatalogSnapshotTest {
+
+    private static final Instant WRITTEN_AT = Instant.ofEpochMilli(1234567890123L);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackWhatWasWritten() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("snapshots/dam-1.catalog");
+        final List<CatalogSnapshot.Entry> entries = List.of(resources("master", "1000 Genomes"),
+                                                            resource("master", "ga4gh-apis"));
+
+        CatalogSnapshot.write(file, WRITTEN_AT, entries);
+        final CatalogSnapshot.Contents contents = CatalogSnapshot.read(file, CatalogSnapshotTest::parser);
+
+        assertThat(contents.getWrittenAt()).isEqualTo(WRITTEN_AT);
+        assertThat(contents.getEntries()).isEqualTo(entries);
+    }
+
+    @Test
+    public void missingFileIsNoSnapshot() throws Exception {
+        assertThat(CatalogSnapshot.read(folder.getRoot().toPath().resolve("missing.catalog"), CatalogSnapshotTest::parser))
+            .isNull();
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws Exception {
+        final Path file = folder.newFile("dam-1.catalog").toPath();
+        Files.write(file, "not a snapshot".getBytes());
+
+        assertThatThrownBy(() -> CatalogSnapshot.read(file, CatalogSnapshotTest::parser))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("Not a catalog snapshot");
+    }
+
+    @Test
+    public void rejectsOtherVersions() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("dam-1.catalog");
+        CatalogSnapshot.write(file, WRITTEN_AT, List.of(resources("master", "1000 Genomes")));
+        final byte[] bytes = Files.readAllBytes(file);
+        // The version follows the four bytes of the magic number
+        bytes[4] = 9;
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> CatalogSnapshot.read(file, CatalogSnapshotTest::parser))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("version 9");
+    }
+
+    @Test
+    public void rejectsTruncatedFiles() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("dam-1.catalog");
+        CatalogSnapshot.write(file, WRITTEN_AT, List.of(resources("master", "1000 Genomes")));
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThatThrownBy(() -> CatalogSnapshot.read(file, CatalogSnapshotTest::parser))
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void replacesThePreviousSnapshotWithoutLeavingTemporaryFiles() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("dam-1.catalog");
+        CatalogSnapshot.write(file, WRITTEN_AT, List.of(resources("master", "1000 Genomes")));
+        final List<CatalogSnapshot.Entry> replacement = List.of(resource("staging", "ga4gh-apis"));
+
+        CatalogSnapshot.write(file, WRITTEN_AT.plusSeconds(60), replacement);
+
+        final CatalogSnapshot.Contents contents = CatalogSnapshot.read(file, CatalogSnapshotTest::parser);
+        assertThat(contents.getWrittenAt()).isEqualTo(WRITTEN_AT.plusSeconds(60));
+        assertThat(contents.getEntries()).isEqualTo(replacement);
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    private static CatalogSnapshot.Entry resources(String realm, String label) {
+        return new CatalogSnapshot.Entry("RESOURCES",
+                                         realm,
+                                         null,
+                                         new Revalidated.Validators("\"1\"", "Wed, 21 Oct 2015 07:28:00 GMT", "hash"),
+                                         null,
+                                         Map.of("thousand-genomes", DamService.Resource.newBuilder().putUi("label", label).build(),
+                                                "ga4gh-apis", DamService.Resource.getDefaultInstance()));
+    }
+
+    private static CatalogSnapshot.Entry resource(String realm, String resourceId) {
+        return new CatalogSnapshot.Entry("RESOURCE",
+                                         realm,
+                                         resourceId,
+                                         null,
+                                         DamService.Resource.newBuilder().putUi("label", resourceId).build(),
+                                         null);
+    }
+
+    private static Parser<? extends Message> parser(String operation) {
+        switch (operation) {
+            case "RESOURCES":
+            case "RESOURCE":
+                return DamService.Resource.parser();
+            default:
+                return null;
+        }
+    }
+
+}
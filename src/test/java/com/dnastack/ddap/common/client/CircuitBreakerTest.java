@@ -0,0 +1,89 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.config.CircuitBreakerProperties;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CircuitBreakerTest {
+
+    private static final Duration FAST = Duration.ofMillis(10);
+
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setMinimumCalls(4);
+        properties.setFailureRateThreshold(0.5);
+        properties.setSlowCallDuration(Duration.ofSeconds(1));
+        properties.setOpenDuration(Duration.ofMillis(100));
+        properties.setHalfOpenProbes(2);
+        circuitBreaker = new CircuitBreaker("test", properties);
+    }
+
+    @Test
+    public void opensOnceFailureRateReachesThreshold() {
+        circuitBreaker.onResult(FAST, false);
+        circuitBreaker.onResult(FAST, true);
+        circuitBreaker.onResult(FAST, false);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        circuitBreaker.onResult(Duration.ofSeconds(2), false);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    public void closesAfterSuccessfulProbes() throws Exception {
+        open();
+        Thread.sleep(150);
+
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        // Only as many probes as configured
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+
+        circuitBreaker.onResult(FAST, false);
+        circuitBreaker.onResult(FAST, false);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    public void reopensWhenProbeFails() throws Exception {
+        open();
+        Thread.sleep(150);
+
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        circuitBreaker.onResult(FAST, true);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    public void lookupReturnsRegisteredBreaker() {
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setHalfOpenProbes(7);
+        final CircuitBreaker registered = CircuitBreaker.forUpstream("registered-breaker-test", properties);
+
+        assertThat(CircuitBreaker.get("registered-breaker-test")).isSameAs(registered);
+        assertThatThrownBy(() -> CircuitBreaker.get("unregistered-breaker-test")).isInstanceOf(IllegalStateException.class);
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onResult(FAST, true);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+}
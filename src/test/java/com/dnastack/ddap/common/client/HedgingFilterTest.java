@@ -0,0 +1,82 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.config.AdaptiveTimeoutProperties;
+import com.dnastack.ddap.common.config.HedgingProperties;
+import com.dnastack.ddap.common.config.RetryBudgetProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HedgingFilterTest {
+
+    private HedgingFilter filter;
+
+    @Before
+    public void setUp() {
+        final HedgingProperties properties = new HedgingProperties();
+        properties.setEnabled(true);
+        properties.setDelay(Duration.ofMillis(50));
+        properties.setMaxAttempts(2);
+        final AdaptiveTimeoutProperties timeoutProperties = new AdaptiveTimeoutProperties();
+        timeoutProperties.setMaxTimeout(Duration.ofSeconds(10));
+        filter = new HedgingFilter("test",
+                                   properties,
+                                   new AdaptiveTimeouts("test", timeoutProperties),
+                                   new RetryBudget("test", new RetryBudgetProperties()));
+    }
+
+    @Test
+    public void hedgeAnswersWhenFirstAttemptIsSlow() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final ExchangeFunction next = request -> attempts.getAndIncrement() == 0
+                                                 ? Mono.delay(Duration.ofSeconds(5)).map(ignore -> ClientResponse.create(HttpStatus.OK).build())
+                                                 : Mono.just(ClientResponse.create(HttpStatus.ACCEPTED).build());
+
+        final ClientResponse response = filter.filter(request(HttpMethod.GET), next).block(Duration.ofSeconds(2));
+
+        assertThat(response.statusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void failedFirstAttemptDoesNotFailRequest() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final ExchangeFunction next = request -> attempts.getAndIncrement() == 0
+                                                 ? Mono.error(new IOException("connection reset"))
+                                                 : Mono.just(ClientResponse.create(HttpStatus.OK).build());
+
+        final ClientResponse response = filter.filter(request(HttpMethod.GET), next).block(Duration.ofSeconds(2));
+
+        assertThat(response.statusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void nonIdempotentRequestsAreNotHedged() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final ExchangeFunction next = request -> Mono.delay(Duration.ofMillis(200))
+                                                     .map(ignore -> {
+                                                         attempts.incrementAndGet();
+                                                         return ClientResponse.create(HttpStatus.OK).build();
+                                                     });
+
+        filter.filter(request(HttpMethod.POST), next).block(Duration.ofSeconds(2));
+
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+
+    private static ClientRequest request(HttpMethod method) {
+        return ClientRequest.create(method, URI.create("http://localhost/dam")).build();
+    }
+}
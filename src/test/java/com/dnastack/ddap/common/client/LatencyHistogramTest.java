@@ -0,0 +1,61 @@
+package com.dnastack.ddap.common.client;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void hasNoPercentilesUntilEnoughSamples() {
+        final LatencyHistogram histogram = new LatencyHistogram(Duration.ofMinutes(1), 10);
+
+        for (int i = 0; i < 9; i++) {
+            histogram.record(Duration.ofMillis(100));
+        }
+
+        assertThat(histogram.getValueAtPercentile(0.99)).isEmpty();
+    }
+
+    @Test
+    public void firstSnapshotIsTakenOnceEnoughSamples() {
+        final LatencyHistogram histogram = new LatencyHistogram(Duration.ofMinutes(1), 10);
+
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(Duration.ofMillis(10 * i));
+        }
+
+        assertThat(histogram.getValueAtPercentile(0.5)).hasValue(50);
+        assertThat(histogram.getValueAtPercentile(1.0)).hasValue(100);
+    }
+
+    @Test
+    public void keepsSnapshotUntilWindowHasPassed() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(Duration.ofMillis(100), 2);
+        histogram.record(Duration.ofMillis(10));
+        histogram.record(Duration.ofMillis(10));
+
+        histogram.record(Duration.ofMillis(200));
+        histogram.record(Duration.ofMillis(200));
+        assertThat(histogram.getValueAtPercentile(1.0)).hasValue(10);
+
+        Thread.sleep(150);
+        histogram.record(Duration.ofMillis(200));
+
+        assertThat(histogram.getValueAtPercentile(0.5)).hasValue(200);
+    }
+
+    @Test
+    public void clampsNegativeAndHugeLatencies() {
+        final LatencyHistogram histogram = new LatencyHistogram(Duration.ofMinutes(1), 2);
+
+        histogram.record(Duration.ofMillis(-5));
+        histogram.record(Duration.ofHours(1));
+
+        assertThat(histogram.getValueAtPercentile(0.0)).hasValue(0);
+        assertThat(histogram.getValueAtPercentile(1.0).getAsLong()).isLessThanOrEqualTo(Duration.ofMinutes(11).toMillis());
+    }
+
+}
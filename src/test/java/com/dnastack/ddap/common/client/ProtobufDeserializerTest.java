@@ -0,0 +1,142 @@
+package com.dnastack.ddap.common.client;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import dam.v1.DamService;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProtobufDeserializerTest {
+
+    private static final DefaultDataBufferFactory BUFFER_FACTORY = new DefaultDataBufferFactory();
+
+    private static final DamService.GetInfoResponse INFO = DamService.GetInfoResponse.newBuilder()
+                                                                                     .setName("test-dam")
+                                                                                     .setStartTime(1234567890123L)
+                                                                                     .putUi("label", "Test DAM")
+                                                                                     .build();
+
+    @Test
+    public void decodesBinaryProtobuf() {
+        final DamService.GetInfoResponse decoded = ProtobufDeserializer.fromDataBuffers("test",
+                                                                                        ProtobufDeserializer.APPLICATION_PROTOBUF,
+                                                                                        chunks(INFO.toByteArray(), 3),
+                                                                                        DamService.GetInfoResponse.getDefaultInstance())
+                                                                       .block();
+
+        assertThat(decoded).isEqualTo(INFO);
+    }
+
+    @Test
+    public void decodesJsonSplitAcrossChunks() throws Exception {
+        final String json = "{\"name\":\"test-dam\",\"startTime\":\"1234567890123\",\"ui\":{\"label\":\"Test DAM\"}," +
+            "\"unknown\":{\"nested\":[1,{\"a\":null}]}}";
+
+        final DamService.GetInfoResponse decoded = ProtobufDeserializer.fromDataBuffers("test",
+                                                                                        MediaType.APPLICATION_JSON,
+                                                                                        chunks(json.getBytes(UTF_8), 5),
+                                                                                        DamService.GetInfoResponse.getDefaultInstance())
+                                                                       .block();
+
+        assertThat(decoded).isEqualTo(INFO);
+        assertThat(decoded).isEqualTo(ProtobufDeserializer.fromJson(json, DamService.GetInfoResponse.getDefaultInstance()));
+    }
+
+    @Test
+    public void decodesMapsOfMessagesLikeJsonFormat() throws Exception {
+        final String json = "{\"views\":{" +
+            "\"a/b/c\":{\"resource_path\":\"a/b/c\",\"umbrella\":\"u\",\"labels\":{\"k\":\"v\"},\"roleCategories\":[\"list\",\"metadata\"]}," +
+            "\"d/e/f\":{\"resourcePath\":\"d/e/f\",\"maxTokenTtl\":\"1h\",\"roleCategories\":[]}" +
+            "}}";
+
+        final DamService.GetFlatViewsResponse decoded = ProtobufDeserializer.fromDataBuffers("test",
+                                                                                             null,
+                                                                                             chunks(json.getBytes(UTF_8), 7),
+                                                                                             DamService.GetFlatViewsResponse.getDefaultInstance())
+                                                                            .block();
+
+        assertThat(decoded).isEqualTo(ProtobufDeserializer.fromJson(json, DamService.GetFlatViewsResponse.getDefaultInstance()));
+        assertThat(decoded.getViewsMap().get("a/b/c").getRoleCategoriesList()).containsExactly("list", "metadata");
+    }
+
+    @Test
+    public void emptyJsonBodyDecodesToNothing() {
+        final DamService.GetInfoResponse decoded = ProtobufDeserializer.fromDataBuffers("test",
+                                                                                        MediaType.APPLICATION_JSON,
+                                                                                        Flux.empty(),
+                                                                                        DamService.GetInfoResponse.getDefaultInstance())
+                                                                       .block();
+
+        assertThat(decoded).isNull();
+    }
+
+    @Test
+    public void streamsFlatViewsFromJsonAndProtobuf() {
+        final DamService.GetFlatViewsResponse response = DamService.GetFlatViewsResponse.newBuilder()
+                                                                                       .putViews("a/b/c", flatView("a/b/c"))
+                                                                                       .putViews("d/e/f", flatView("d/e/f"))
+                                                                                       .build();
+        final String json = "{\"views\":{\"a/b/c\":{\"resourcePath\":\"a/b/c\"},\"d/e/f\":{\"resourcePath\":\"d/e/f\"}}}";
+
+        final List<DamService.GetFlatViewsResponse.FlatView> fromJson =
+            ProtobufDeserializer.flatViewsFromResponse("test", response(MediaType.APPLICATION_JSON, json.getBytes(UTF_8)))
+                                .collectList()
+                                .block();
+        final List<DamService.GetFlatViewsResponse.FlatView> fromProtobuf =
+            ProtobufDeserializer.flatViewsFromResponse("test", response(ProtobufDeserializer.APPLICATION_PROTOBUF, response.toByteArray()))
+                                .collectList()
+                                .block();
+
+        assertThat(fromJson).containsExactly(flatView("a/b/c"), flatView("d/e/f"));
+        assertThat(fromProtobuf).containsExactlyInAnyOrder(flatView("a/b/c"), flatView("d/e/f"));
+    }
+
+    @Test
+    public void streamsBinaryFlatViewsSplitAcrossChunks() {
+        final DamService.GetFlatViewsResponse response = DamService.GetFlatViewsResponse.newBuilder()
+                                                                                       .putViews("a/b/c", flatView("a/b/c"))
+                                                                                       .putViews("d/e/f", flatView("d/e/f"))
+                                                                                       .build();
+        final byte[] bytes = response.toByteArray();
+
+        assertThat(ProtobufDeserializer.flatViews(chunks(bytes, 1)).collectList().block())
+            .containsExactlyInAnyOrder(flatView("a/b/c"), flatView("d/e/f"));
+        assertThatThrownBy(() -> ProtobufDeserializer.flatViews(chunks(Arrays.copyOf(bytes, bytes.length - 1), 4))
+                                                     .collectList()
+                                                     .block())
+            .hasCauseInstanceOf(InvalidProtocolBufferException.class);
+    }
+
+    private static DamService.GetFlatViewsResponse.FlatView flatView(String resourcePath) {
+        return DamService.GetFlatViewsResponse.FlatView.newBuilder().setResourcePath(resourcePath).build();
+    }
+
+    private static ClientResponse response(MediaType contentType, byte[] body) {
+        return ClientResponse.create(HttpStatus.OK)
+                             .header(HttpHeaders.CONTENT_TYPE, contentType.toString())
+                             .body(chunks(body, 7))
+                             .build();
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] bytes, int chunkSize) {
+        final List<DataBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            chunks.add(BUFFER_FACTORY.wrap(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + chunkSize))));
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+}
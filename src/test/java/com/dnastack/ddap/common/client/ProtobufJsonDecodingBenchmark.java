@@ -0,0 +1,121 @@
+package com.dnastack.ddap.common.client;
+
+import com.google.protobuf.util.JsonFormat;
+import dam.v1.DamService.GetFlatViewsResponse;
+import dam.v1.DamService.GetFlatViewsResponse.FlatView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares decoding a flat views response with {@link JsonFormat} against the streaming decoder, and against binary
+ * protobuf. Not run by the build; run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtobufJsonDecodingBenchmark {
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final DefaultDataBufferFactory BUFFER_FACTORY = new DefaultDataBufferFactory();
+
+    @Param({"100", "10000"})
+    private int views;
+
+    private String json;
+    private byte[] jsonBytes;
+    private byte[] protobufBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        final GetFlatViewsResponse.Builder response = GetFlatViewsResponse.newBuilder();
+        for (int i = 0; i < views; i++) {
+            final String path = "/dam/v1alpha/master/resources/resource-" + i + "/views/view-" + i + "/roles/viewer";
+            response.putViews(path, FlatView.newBuilder()
+                                            .setResourcePath(path)
+                                            .setUmbrella("umbrella-" + (i % 10))
+                                            .setResourceName("resource-" + i)
+                                            .setViewName("view-" + i)
+                                            .setRoleName("viewer")
+                                            .setInterfaceName("http:gcp:gs")
+                                            .setInterfaceUri("https://storage.cloud.google.com/bucket-" + i)
+                                            .setContentType("application/bam")
+                                            .putLabels("version", "Phase " + (i % 3))
+                                            .putLabels("topic", "variants")
+                                            .setServiceName("gcs")
+                                            .setPlatform("gcp")
+                                            .setMaxTokenTtl("1h")
+                                            .putResourceUi("label", "Resource " + i)
+                                            .putViewUi("label", "View " + i)
+                                            .putRoleUi("label", "Viewer")
+                                            .addRoleCategories("list")
+                                            .addRoleCategories("metadata")
+                                            .build());
+        }
+        json = JsonFormat.printer().print(response);
+        jsonBytes = json.getBytes(UTF_8);
+        protobufBytes = response.build().toByteArray();
+    }
+
+    @Benchmark
+    public GetFlatViewsResponse jsonFormat() throws Exception {
+        return ProtobufDeserializer.fromJson(new String(jsonBytes, UTF_8), GetFlatViewsResponse.getDefaultInstance());
+    }
+
+    @Benchmark
+    public GetFlatViewsResponse streamingJson() {
+        return ProtobufDeserializer.fromDataBuffers("benchmark",
+                                                    MediaType.APPLICATION_JSON,
+                                                    chunks(jsonBytes),
+                                                    GetFlatViewsResponse.getDefaultInstance())
+                                   .block();
+    }
+
+    @Benchmark
+    public GetFlatViewsResponse binaryProtobuf() {
+        return ProtobufDeserializer.fromDataBuffers("benchmark",
+                                                    ProtobufDeserializer.APPLICATION_PROTOBUF,
+                                                    chunks(protobufBytes),
+                                                    GetFlatViewsResponse.getDefaultInstance())
+                                   .block();
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] bytes) {
+        final List<DataBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += CHUNK_SIZE) {
+            chunks.add(BUFFER_FACTORY.wrap(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + CHUNK_SIZE))));
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProtobufJsonDecodingBenchmark.class.getSimpleName())
+                                       .build()).run();
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.dnastack.ddap.common.client;
+
+import com.dnastack.ddap.common.config.RetryBudgetProperties;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RetryBudgetTest {
+
+    private RetryBudgetProperties properties;
+
+    @Before
+    public void setUp() {
+        properties = new RetryBudgetProperties();
+        properties.setRatio(0.5);
+        properties.setMinRetriesPerSecond(0);
+        properties.setMaxBalance(2);
+    }
+
+    @Test
+    public void skipsRetriesOnceExhausted() {
+        final RetryBudget budget = new RetryBudget("test", properties);
+        budget.recordSuccess();
+        budget.recordSuccess();
+
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+
+    @Test
+    public void balanceIsCappedAtMaximum() {
+        final RetryBudget budget = new RetryBudget("test", properties);
+        for (int i = 0; i < 100; i++) {
+            budget.recordSuccess();
+        }
+
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isTrue();
+        assertThat(budget.tryAcquireRetry()).isFalse();
+    }
+
+    @Test
+    public void refillsOverTime() throws Exception {
+        properties.setMinRetriesPerSecond(50);
+        final RetryBudget budget = new RetryBudget("test", properties);
+        while (budget.tryAcquireRetry()) {
+            // Drain what was available at creation
+        }
+
+        Thread.sleep(100);
+
+        assertThat(budget.tryAcquireRetry()).isTrue();
+    }
+
+    @Test
+    public void alwaysAllowsRetriesWhenDisabled() {
+        properties.setEnabled(false);
+        final RetryBudget budget = new RetryBudget("test", properties);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(budget.tryAcquireRetry()).isTrue();
+        }
+    }
+
+    @Test
+    public void lookupFailsForUnregisteredUpstream() {
+        final RetryBudget registered = RetryBudget.forUpstream("registered-budget-test", properties);
+
+        assertThat(RetryBudget.get("registered-budget-test")).isSameAs(registered);
+        assertThatThrownBy(() -> RetryBudget.get("unregistered-budget-test")).isInstanceOf(IllegalStateException.class);
+    }
+
+}
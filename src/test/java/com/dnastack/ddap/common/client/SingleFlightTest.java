@@ -0,0 +1,61 @@
+package com.dnastack.ddap.common.client;
+
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String> singleFlight = new SingleFlight<>("test.coalescing");
+
+    @Test
+    public void concurrentCallersShareOneCall() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Mono<Integer> first = singleFlight.execute("op", "key", () -> slowCall(calls));
+        final Mono<Integer> second = singleFlight.execute("op", "key", () -> slowCall(calls));
+
+        final Tuple2<Integer, Integer> results = Mono.zip(first, second).block(Duration.ofSeconds(5));
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(results.getT1()).isEqualTo(results.getT2());
+        assertThat(singleFlight.size()).isZero();
+    }
+
+    @Test
+    public void completedCallIsNotReused() {
+        final AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("op", "key", () -> slowCall(calls)).block(Duration.ofSeconds(5));
+        singleFlight.execute("op", "key", () -> slowCall(calls)).block(Duration.ofSeconds(5));
+
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void callIsCancelledOnlyWhenAllCallersCancel() {
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        final Mono<Object> call = Mono.never().doOnCancel(() -> cancelled.set(true));
+
+        final Disposable first = singleFlight.execute("op", "key", () -> call).subscribe();
+        final Disposable second = singleFlight.execute("op", "key", () -> call).subscribe();
+
+        first.dispose();
+        assertThat(cancelled).isFalse();
+        second.dispose();
+        assertThat(cancelled).isTrue();
+        assertThat(singleFlight.size()).isZero();
+    }
+
+    private static Mono<Integer> slowCall(AtomicInteger calls) {
+        return Mono.delay(Duration.ofMillis(100))
+                   .map(ignore -> calls.incrementAndGet());
+    }
+
+}
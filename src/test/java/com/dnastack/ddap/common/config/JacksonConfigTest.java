@@ -0,0 +1,70 @@
+package com.dnastack.ddap.common.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.google.protobuf.Duration;
+import com.google.protobuf.Message;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.util.JsonFormat;
+import dam.v1.DamService;
+import org.junit.Test;
+import process.ProcessOuterClass;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JacksonConfigTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new SimpleModule().addSerializer(new JacksonConfig.Protobuf2JsonSerializer()));
+
+    @Test
+    public void writesSameJsonAsJsonFormat() throws Exception {
+        assertSameJson(DamService.GetFlatViewsResponse.newBuilder()
+                                                      .putViews("/a", DamService.GetFlatViewsResponse.FlatView.newBuilder()
+                                                                                                               .setResourcePath("/a")
+                                                                                                               .setMaxTokenTtl("1h")
+                                                                                                               .putLabels("topic", "variants")
+                                                                                                               .addRoleCategories("list")
+                                                                                                               .addRoleCategories("metadata")
+                                                                                                               .build())
+                                                      .build());
+        assertSameJson(DamService.DamConfig.newBuilder()
+                                           .setVersion("v0")
+                                           .setRevision(Long.MAX_VALUE)
+                                           .setCommitTime(1.5)
+                                           .build());
+        assertSameJson(DamService.ResourceTokenRequestState.newBuilder()
+                                                           .setType(DamService.ResourceTokenRequestState.TokenType.DATASET)
+                                                           .addResources(DamService.ResourceTokenRequestState.Resource.newBuilder()
+                                                                                                                      .setRealm("master"))
+                                                           .setResponseKeyFile(true)
+                                                           .setTtl(3600)
+                                                           .build());
+        assertSameJson(ProcessOuterClass.Process.newBuilder()
+                                                .setProcessName("gc")
+                                                .setScheduleFrequency(Duration.newBuilder().setSeconds(60))
+                                                .putCleanupWork("w", Timestamp.newBuilder().setSeconds(1234).setNanos(5000).build())
+                                                .putAggregateStats("runs", Double.NaN)
+                                                .build());
+    }
+
+    @Test
+    public void leavesOutDefaultValues() throws Exception {
+        final Message message = DamService.ResourceTokenRequestState.newBuilder()
+                                                                    .setRealm("")
+                                                                    .setTtl(0)
+                                                                    .setType(DamService.ResourceTokenRequestState.TokenType.UNSPECIFIED)
+                                                                    .build();
+
+        assertThat(objectMapper.writeValueAsString(message)).isEqualTo("{}");
+        assertThat(objectMapper.writeValueAsString(Map.of("state", message))).isEqualTo("{\"state\":{}}");
+    }
+
+    private void assertSameJson(Message message) throws Exception {
+        assertThat(objectMapper.readTree(objectMapper.writeValueAsString(message)))
+            .isEqualTo(objectMapper.readTree(JsonFormat.printer().print(message)));
+    }
+
+}